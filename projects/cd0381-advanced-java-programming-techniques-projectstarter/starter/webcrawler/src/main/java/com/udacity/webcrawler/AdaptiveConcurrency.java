@@ -0,0 +1,16 @@
+package com.udacity.webcrawler;
+
+import javax.inject.Qualifier;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * A binding annotation for whether the parallel crawler adapts its number of concurrent downloads.
+ *
+ * <p>The value bound to this annotation is the value of the {@code "adaptiveConcurrency"} option
+ * from the crawler configuration JSON.
+ */
+@Qualifier
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdaptiveConcurrency {
+}
@@ -0,0 +1,296 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of pages a {@link ParallelWebCrawler} downloads at the same time, and adjusts
+ * the limit while the crawl runs.
+ *
+ * <p>The limit follows an additive-increase, multiplicative-decrease (AIMD) rule, like TCP
+ * congestion control. A low percentile of the latencies of the most recent downloads serves as a
+ * baseline. When a download takes more than twice the baseline, the hosts are assumed to be
+ * overloaded, and the limit is cut by a quarter, at most once per limit's worth of downloads.
+ * Otherwise, if every download slot was in use and pages are queued for one, the limit grows by
+ * one per limit's worth of downloads, which is roughly one per round trip. The limit never grows
+ * while the process is using nearly all of the CPU, since more downloads would then only slow down
+ * parsing.
+ *
+ * <p>Only pages that were actually downloaded over the network are sampled, timed from the request
+ * to the end of the body (see {@link PageParser.Result#getDownloadNanos()}). Results served from a
+ * cache, local files, and downloads that failed or were cancelled take a slot like any other page,
+ * but do not move the limit, since their latency says nothing about how loaded the hosts are. The
+ * baseline is not the lowest latency ever seen, so that a single unusually fast download cannot
+ * make every later one look slow, and it follows the hosts when they become slower for good.
+ *
+ * <p>Downloads run inside {@link ForkJoinPool#managedBlock}, so a {@link ForkJoinPool} adds
+ * spare threads while its workers are blocked on the network. That is what lets the number of
+ * downloads exceed the number of pool threads.
+ *
+ * <p>Every change of the limit is reported to the {@link Profiler} as the gauge
+ * {@code "ParallelWebCrawler#concurrency"}.
+ *
+ * <p>This class is thread-safe.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  /**
+   * A limit that lets every download run right away, for crawls that do not adapt.
+   */
+  static final AdaptiveConcurrencyLimit DISABLED = new AdaptiveConcurrencyLimit();
+
+  private static final double LATENCY_TOLERANCE = 2.0;
+  private static final double BACKOFF_RATIO = 0.75;
+  private static final double CPU_THRESHOLD = 0.9;
+
+  /**
+   * The number of recent download latencies the baseline is taken from.
+   */
+  private static final int BASELINE_WINDOW = 32;
+
+  /**
+   * Which of the recent latencies, sorted from fastest, is the baseline: one in every this many
+   * recent downloads may be faster than the baseline, so an outlier never becomes the baseline
+   * once there are a few samples.
+   */
+  private static final int BASELINE_RANK_DIVISOR = 8;
+
+  private static final long CPU_SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+  private final int maxLimit;
+  private final LongSupplier queueDepth;
+  private final DoubleSupplier cpuLoad;
+  private final LongSupplier ticker;
+  private final Profiler profiler;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotAvailable = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private int waiting;
+  private final long[] recentLatencies = new long[BASELINE_WINDOW];
+  private final long[] sortedLatencies = new long[BASELINE_WINDOW];
+  private int sampleCount;
+  private int downloadsSinceBackoff;
+  private double lastCpuLoad;
+  private long lastCpuSample;
+
+  private AdaptiveConcurrencyLimit() {
+    this.maxLimit = Integer.MAX_VALUE;
+    this.queueDepth = null;
+    this.cpuLoad = null;
+    this.ticker = null;
+    this.profiler = null;
+  }
+
+  /**
+   * Creates a limit for downloads run by the given pool, which reads the CPU load from the
+   * platform's {@link OperatingSystemMXBean}.
+   *
+   * @param initialLimit the number of downloads allowed at first.
+   * @param maxLimit     the most downloads ever allowed at once.
+   * @param pool         the pool whose queued tasks are waiting for a download slot.
+   * @param profiler     the profiler the limit is reported to.
+   */
+  AdaptiveConcurrencyLimit(int initialLimit, int maxLimit, ForkJoinPool pool, Profiler profiler) {
+    this(
+        initialLimit,
+        maxLimit,
+        () -> pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount(),
+        AdaptiveConcurrencyLimit::processCpuLoad,
+        System::nanoTime,
+        profiler);
+  }
+
+  /**
+   * Creates a limit that reads the number of queued pages, the CPU load between 0 and 1, and the
+   * time in nanoseconds from the given suppliers.
+   */
+  AdaptiveConcurrencyLimit(
+      int initialLimit,
+      int maxLimit,
+      LongSupplier queueDepth,
+      DoubleSupplier cpuLoad,
+      LongSupplier ticker,
+      Profiler profiler) {
+    if (initialLimit < 1 || maxLimit < initialLimit) {
+      throw new IllegalArgumentException("Need 1 <= initialLimit <= maxLimit");
+    }
+    this.maxLimit = maxLimit;
+    this.queueDepth = Objects.requireNonNull(queueDepth);
+    this.cpuLoad = Objects.requireNonNull(cpuLoad);
+    this.ticker = Objects.requireNonNull(ticker);
+    this.profiler = Objects.requireNonNull(profiler);
+    this.limit = initialLimit;
+    this.lastCpuSample = ticker.getAsLong() - CPU_SAMPLE_INTERVAL_NANOS;
+    profiler.gauge("ParallelWebCrawler#concurrency", initialLimit);
+  }
+
+  /**
+   * Runs the given parser once a download slot is free, and adjusts the limit according to how
+   * long its download took, if it downloaded the page.
+   */
+  PageParser.Result parse(PageParser parser) {
+    if (this == DISABLED) {
+      return parser.parse();
+    }
+    ParseBlocker blocker = new ParseBlocker(parser);
+    acquire();
+    try {
+      ForkJoinPool.managedBlock(blocker);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while downloading", e);
+    } finally {
+      PageParser.Result result = blocker.result;
+      release((result == null) ? -1 : result.getDownloadNanos().orElse(-1));
+    }
+    return blocker.result;
+  }
+
+  /**
+   * Returns the number of downloads currently allowed at once.
+   */
+  int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for a free download slot and takes it. Every call must be followed by a call to
+   * {@link #release(long)}.
+   */
+  void acquire() {
+    lock.lock();
+    try {
+      waiting++;
+      try {
+        while (inFlight >= (int) limit) {
+          slotAvailable.await();
+        }
+      } finally {
+        waiting--;
+      }
+      inFlight++;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a download slot", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Frees the slot of a download that took {@code latencyNanos}, and adjusts the limit. A negative
+   * latency frees the slot without adjusting the limit, for pages that were not downloaded.
+   */
+  void release(long latencyNanos) {
+    lock.lock();
+    try {
+      // Whether this download was one of a full set, with more work waiting for a slot.
+      boolean saturated =
+          inFlight >= (int) limit && (waiting > 0 || queueDepth.getAsLong() > 0);
+      inFlight--;
+      if (latencyNanos < 0) {
+        slotAvailable.signalAll();
+        return;
+      }
+
+      int before = (int) limit;
+      long baselineNanos = addSample(latencyNanos);
+      downloadsSinceBackoff++;
+      if (latencyNanos > baselineNanos * LATENCY_TOLERANCE) {
+        if (downloadsSinceBackoff >= limit) {
+          limit = Math.max(1, limit * BACKOFF_RATIO);
+          downloadsSinceBackoff = 0;
+        }
+      } else if (saturated && !isCpuSaturated()) {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+
+      int after = (int) limit;
+      if (after != before) {
+        profiler.gauge("ParallelWebCrawler#concurrency", after);
+      }
+      slotAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds the given latency to the recent ones, and returns the baseline they make up. Must be
+   * called with the lock held.
+   */
+  private long addSample(long latencyNanos) {
+    recentLatencies[sampleCount % BASELINE_WINDOW] = latencyNanos;
+    sampleCount++;
+    int n = Math.min(sampleCount, BASELINE_WINDOW);
+    System.arraycopy(recentLatencies, 0, sortedLatencies, 0, n);
+    Arrays.sort(sortedLatencies, 0, n);
+    return sortedLatencies[n / BASELINE_RANK_DIVISOR];
+  }
+
+  /**
+   * Returns true if the process was using nearly all of the CPU when last checked. Must be called
+   * with the lock held.
+   */
+  private boolean isCpuSaturated() {
+    long now = ticker.getAsLong();
+    if (now - lastCpuSample >= CPU_SAMPLE_INTERVAL_NANOS) {
+      lastCpuLoad = cpuLoad.getAsDouble();
+      lastCpuSample = now;
+    }
+    return lastCpuLoad >= CPU_THRESHOLD;
+  }
+
+  /**
+   * Returns the CPU load of this process between 0 and 1, or 0 if the platform does not report it.
+   */
+  private static double processCpuLoad() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      return Math.max(0, ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuLoad());
+    }
+    return 0;
+  }
+
+  /**
+   * Runs a parser as a {@link ForkJoinPool.ManagedBlocker}, so the pool can start a spare thread
+   * while it waits for the download.
+   */
+  private static final class ParseBlocker implements ForkJoinPool.ManagedBlocker {
+    private final PageParser parser;
+    private PageParser.Result result;
+
+    ParseBlocker(PageParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public boolean block() {
+      result = parser.parse();
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return result != null;
+    }
+  }
+}
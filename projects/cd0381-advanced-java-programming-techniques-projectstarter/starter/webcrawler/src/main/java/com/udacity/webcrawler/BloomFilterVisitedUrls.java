@@ -0,0 +1,91 @@
+package com.udacity.webcrawler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link VisitedUrls} set backed by a Bloom filter, which takes a fixed amount of memory no
+ * matter how many URLs are added.
+ *
+ * <p>The filter is sized for an expected number of URLs and a target false positive rate. For
+ * example, 100 million URLs at a 1% false positive rate take 114 MiB. A false positive means that
+ * a URL that was never visited is reported as visited, so the crawler skips it. A URL that was
+ * visited is never crawled again, though two threads adding the same new URL at exactly the same
+ * time may both be told that it is new.
+ *
+ * <p>Because the filter cannot count its own contents, {@link #size()} is a separate counter of
+ * the URLs that were reported as new.
+ */
+final class BloomFilterVisitedUrls implements VisitedUrls {
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param expectedUrlCount  the number of distinct URLs the filter is sized for.
+   * @param falsePositiveRate the fraction of new URLs that may wrongly be reported as visited,
+   *                          once the filter holds {@code expectedUrlCount} URLs.
+   */
+  BloomFilterVisitedUrls(long expectedUrlCount, double falsePositiveRate) {
+    if (expectedUrlCount <= 0) {
+      throw new IllegalArgumentException("expectedUrlCount must be positive");
+    }
+    if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+    }
+    // The standard optimal sizes: m = -n ln(p) / ln(2)^2 bits, and k = (m / n) ln(2) hashes.
+    double bits = -expectedUrlCount * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    long wordCount = Math.max(1, (long) Math.ceil(bits / Long.SIZE));
+    if (wordCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Bloom filter would need more than 2^31 words");
+    }
+    this.words = new AtomicLongArray((int) wordCount);
+    this.bitCount = wordCount * Long.SIZE;
+    this.hashCount =
+        (int) Math.max(1, Math.round((double) bitCount / expectedUrlCount * Math.log(2)));
+  }
+
+  @Override
+  public boolean add(String url) {
+    long fingerprint = UrlFingerprint.of(url);
+    // Double hashing: the i-th bit is h1 + i * h2, which is as good as k independent hashes.
+    long h1 = fingerprint;
+    long h2 = Long.rotateLeft(fingerprint, 32) * 0x9E3779B97F4A7C15L | 1;
+    boolean added = false;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      int index = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      if ((words.get(index) & mask) == 0
+          && (words.getAndAccumulate(index, mask, (word, m) -> word | m) & mask) == 0) {
+        added = true;
+      }
+    }
+    if (added) {
+      size.incrementAndGet();
+    }
+    return added;
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns the number of bits in the filter.
+   */
+  long bitCount() {
+    return bitCount;
+  }
+
+  /**
+   * Returns the number of bits set for each URL.
+   */
+  int hashCount() {
+    return hashCount;
+  }
+}
@@ -1,113 +1,94 @@
 package com.udacity.webcrawler;
 
+import com.udacity.webcrawler.parser.CancellationToken;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
 
-import java.time.Clock;
-import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.RecursiveAction;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class CountWordsAction extends RecursiveAction {
   private final int maxDepth;
-  private final Clock clock;
-  private final Instant timeLimit;
+  private final CancellationToken cancellation;
   private final String url;
   private final PageParserFactory parserFactory;
-  private final Map<String, Integer> wordCounts;
-  private final ConcurrentSkipListSet<String> visitedUrls;
-  private final List<Pattern> ignoredUrls;
+  private final WordCountAccumulator wordCounts;
+  private final VisitedUrls visitedUrls;
+  private final UrlFilter ignoredUrls;
+  private final AdaptiveConcurrencyLimit concurrencyLimit;
 
-  public CountWordsAction(
+  CountWordsAction(
       int maxDepth,
-      Clock clock,
-      Instant timeLimit,
+      CancellationToken cancellation,
       String url,
       PageParserFactory parserFactory,
-      Map<String, Integer> wordCounts,
-      ConcurrentSkipListSet<String> visitedUrls,
-      List<Pattern> ignoredUrls) {
+      WordCountAccumulator wordCounts,
+      VisitedUrls visitedUrls,
+      UrlFilter ignoredUrls,
+      AdaptiveConcurrencyLimit concurrencyLimit) {
     this.maxDepth = maxDepth;
-    this.clock = clock;
-    this.timeLimit = timeLimit;
+    this.cancellation = cancellation;
     this.url = url;
     this.parserFactory = parserFactory;
     this.wordCounts = wordCounts;
     this.visitedUrls = visitedUrls;
     this.ignoredUrls = ignoredUrls;
+    this.concurrencyLimit = concurrencyLimit;
   }
 
   @Override
   protected void compute() {
-    if (clock.instant().isAfter(timeLimit) || maxDepth == 0)
+    if (cancellation.isCancelled() || maxDepth == 0)
       return;
 
-    for (final Pattern pattern : ignoredUrls) {
-      if (pattern.matcher(url).matches())
-        return;
-    }
+    if (ignoredUrls.isIgnored(url))
+      return;
 
     if (!visitedUrls.add(url))
       return;
 
-    PageParser.Result result = parserFactory.get(url).parse();
-    countWordsInUrl(result, wordCounts);
+    PageParser.Result result = concurrencyLimit.parse(parserFactory.get(url, cancellation));
+    // A page that finished after the deadline is left out, rather than merged while the crawler
+    // ranks the final counts.
+    if (cancellation.isCancelled())
+      return;
+    result.forEachWordCount(wordCounts::add);
 
     List<CountWordsAction> subTasks = result.getLinks()
         .stream()
         .map(link -> new CountWordsAction.Builder()
             .setMaxDepth(maxDepth - 1)
-            .setClock(clock)
-            .setTimeLimit(timeLimit)
+            .setCancellationToken(cancellation)
             .setUrl(link)
             .setParserFactory(parserFactory)
             .setWordCounts(wordCounts)
             .setVisitedUrls(visitedUrls)
             .setIgnoredUrls(ignoredUrls)
+            .setConcurrencyLimit(concurrencyLimit)
             .build())
         .collect(Collectors.toList());
 
     invokeAll(subTasks);
   }
 
-  public static void countWordsInUrl(PageParser.Result result, Map<String, Integer> wordCounts) {
-    for (Map.Entry<String, Integer> localWordCount : result.getWordCounts().entrySet()) {
-      // Increasing our global word count with our local word count
-      wordCounts.compute(
-          localWordCount.getKey(), (key, value) ->
-              (value == null) ?
-                  localWordCount.getValue() :
-                  wordCounts.get(localWordCount.getKey()) + localWordCount.getValue()
-      );
-    }
-  }
-
   public static final class Builder {
     private int maxDepth;
-    private Clock clock;
-    private Instant timeLimit;
+    private CancellationToken cancellation;
     private String url;
     private PageParserFactory parserFactory;
-    private Map<String, Integer> wordCounts;
-    private ConcurrentSkipListSet<String> visitedUrls;
-    private List<Pattern> ignoredUrls;
+    private WordCountAccumulator wordCounts;
+    private VisitedUrls visitedUrls;
+    private UrlFilter ignoredUrls;
+    private AdaptiveConcurrencyLimit concurrencyLimit = AdaptiveConcurrencyLimit.DISABLED;
 
     public Builder setMaxDepth(int maxDepth) {
       this.maxDepth = maxDepth;
       return this;
     }
 
-    public Builder setClock(Clock clock) {
-      this.clock = clock;
-      return this;
-    }
-
-    public Builder setTimeLimit(Instant timeLimit) {
-      this.timeLimit = timeLimit;
+    public Builder setCancellationToken(CancellationToken cancellation) {
+      this.cancellation = cancellation;
       return this;
     }
 
@@ -121,24 +102,29 @@ public class CountWordsAction extends RecursiveAction {
       return this;
     }
 
-    public Builder setWordCounts(Map<String, Integer> wordCounts) {
+    public Builder setWordCounts(WordCountAccumulator wordCounts) {
       this.wordCounts = wordCounts;
       return this;
     }
 
-    public Builder setVisitedUrls(ConcurrentSkipListSet<String> visitedUrls) {
+    public Builder setVisitedUrls(VisitedUrls visitedUrls) {
       this.visitedUrls = visitedUrls;
       return this;
     }
 
-    public Builder setIgnoredUrls(List<Pattern> ignoredUrls) {
+    public Builder setIgnoredUrls(UrlFilter ignoredUrls) {
       this.ignoredUrls = ignoredUrls;
       return this;
     }
 
+    Builder setConcurrencyLimit(AdaptiveConcurrencyLimit concurrencyLimit) {
+      this.concurrencyLimit = concurrencyLimit;
+      return this;
+    }
+
     public CountWordsAction build() {
-      return new CountWordsAction(maxDepth, clock, timeLimit, url,
-          parserFactory, wordCounts, visitedUrls, ignoredUrls);
+      return new CountWordsAction(maxDepth, cancellation, url,
+          parserFactory, wordCounts, visitedUrls, ignoredUrls, concurrencyLimit);
     }
   }
 }
@@ -0,0 +1,63 @@
+package com.udacity.webcrawler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The URLs waiting to be crawled at the next depth level of a breadth-first crawl.
+ *
+ * <p>URLs are checked against the ignored URL patterns and de-duplicated at the moment they are
+ * offered, so a link that would be rejected never gets as far as becoming a crawl task.
+ *
+ * <p>{@link #offer(String)} may be called concurrently. {@link #advance()} must only be called
+ * between levels, once every task of the current level has finished.
+ */
+final class CrawlFrontier {
+  private final UrlFilter ignoredUrls;
+  private final VisitedUrls seenUrls;
+  private final Queue<String> nextLevel = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queuedCount = new AtomicInteger();
+
+  CrawlFrontier(UrlFilter ignoredUrls, VisitedUrls seenUrls) {
+    this.ignoredUrls = Objects.requireNonNull(ignoredUrls);
+    this.seenUrls = Objects.requireNonNull(seenUrls);
+  }
+
+  /**
+   * Queues the given URL for the next level, unless it is ignored or has already been queued.
+   *
+   * @return true if the URL was queued.
+   */
+  boolean offer(String url) {
+    if (ignoredUrls.isIgnored(url)) {
+      return false;
+    }
+    if (!seenUrls.add(url)) {
+      return false;
+    }
+    nextLevel.add(url);
+    queuedCount.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Returns the number of URLs that have ever been queued, including those that were already
+   * handed out by {@link #advance()}.
+   */
+  int queuedCount() {
+    return queuedCount.get();
+  }
+
+  /**
+   * Removes and returns every URL queued for the next level.
+   */
+  List<String> advance() {
+    List<String> level = new ArrayList<>(nextLevel);
+    nextLevel.clear();
+    return level;
+  }
+}
@@ -0,0 +1,30 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+
+import java.util.List;
+
+/**
+ * Receives snapshots of a crawl while it runs. See {@link WebCrawler#crawl(List, CrawlListener)}.
+ */
+@FunctionalInterface
+public interface CrawlListener {
+
+  /**
+   * A listener that ignores every snapshot, for crawls nobody is watching.
+   */
+  CrawlListener NONE = snapshot -> true;
+
+  /**
+   * Called with a snapshot of the crawl so far: its most popular words and the number of URLs it
+   * has visited, in the same form as the final {@link CrawlResult}.
+   *
+   * <p>Snapshots are taken while pages are still being counted, so the counts of a snapshot may be
+   * a few pages behind one another, but they never go down from one snapshot to the next.
+   *
+   * @param snapshot the progress of the crawl so far.
+   * @return true to keep crawling, or false to stop the crawl early. A stopped crawl aborts its
+   *         downloads in flight and returns the words counted so far.
+   */
+  boolean onProgress(CrawlResult snapshot);
+}
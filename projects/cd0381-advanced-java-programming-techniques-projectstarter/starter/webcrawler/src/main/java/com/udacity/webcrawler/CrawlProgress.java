@@ -0,0 +1,118 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.CancellationToken;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Reports the progress of a single crawl to its {@link CrawlListener}, from a background thread.
+ *
+ * <p>Each snapshot ranks the words of the crawl's live {@link WordCountAccumulator} with
+ * {@link WordCountAccumulator#top(int)}, which does not copy the accumulator, so taking a snapshot
+ * does not hold up the crawl. If the listener asks to stop, the crawl's {@link CancellationToken}
+ * is cancelled, which makes the crawler wind down and return what it has counted so far.
+ *
+ * <p>Along with each snapshot, the number of URLs waiting in the crawl's frontier is set on the
+ * {@value #FRONTIER_GAUGE} gauge of the {@link Profiler}, so that it shows up in the live metrics.
+ *
+ * <p>Every crawl shares the same reporting thread, and snapshots are taken with a fixed delay
+ * between them, so a slow listener delays its own next snapshot rather than piling them up. If the
+ * listener throws an exception, it is not called again.
+ */
+final class CrawlProgress implements AutoCloseable {
+
+  /**
+   * The name of the profiler gauge that holds the size of the crawl's frontier.
+   */
+  static final String FRONTIER_GAUGE = "WebCrawler#frontierSize";
+
+  private final ScheduledFuture<?> task;
+
+  private CrawlProgress(ScheduledFuture<?> task) {
+    this.task = task;
+  }
+
+  /**
+   * Starts reporting the progress of a crawl, until {@link #close()} is called or the crawl is
+   * cancelled. Does nothing if the listener is {@link CrawlListener#NONE}.
+   *
+   * @param listener         the listener to report to.
+   * @param interval         the time between two snapshots.
+   * @param popularWordCount the number of words in each snapshot.
+   * @param wordCounts       the word counts of the crawl.
+   * @param urlsVisited      returns the number of URLs the crawl has visited so far.
+   * @param frontierSize     returns the number of URLs the crawl has found but not visited yet,
+   *                         or null if the crawler does not keep track of them.
+   * @param profiler         the profiler to set the frontier size on.
+   * @param cancellation     the token that stops the crawl.
+   */
+  static CrawlProgress start(
+      CrawlListener listener,
+      Duration interval,
+      int popularWordCount,
+      WordCountAccumulator wordCounts,
+      IntSupplier urlsVisited,
+      IntSupplier frontierSize,
+      Profiler profiler,
+      CancellationToken cancellation) {
+    Objects.requireNonNull(listener);
+    Objects.requireNonNull(profiler);
+    if (listener == CrawlListener.NONE) {
+      return new CrawlProgress(null);
+    }
+    long nanos = interval.toNanos();
+    Runnable report = () -> {
+      if (cancellation.isCancelled()) {
+        return;
+      }
+      if (frontierSize != null) {
+        profiler.gauge(FRONTIER_GAUGE, frontierSize.getAsInt());
+      }
+      CrawlResult snapshot =
+          new CrawlResult.Builder()
+              .setWordCounts(wordCounts.top(popularWordCount))
+              .setUrlsVisited(urlsVisited.getAsInt())
+              .build();
+      if (!listener.onProgress(snapshot)) {
+        cancellation.cancel();
+      }
+    };
+    return new CrawlProgress(
+        Timer.INSTANCE.scheduleWithFixedDelay(report, nanos, nanos, TimeUnit.NANOSECONDS));
+  }
+
+  /**
+   * Stops reporting. A snapshot that is already being taken still reaches the listener.
+   */
+  @Override
+  public void close() {
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  /**
+   * Holds the thread that reports the progress of every crawl. Created on first use, since most
+   * crawls have no listener.
+   */
+  private static final class Timer {
+    static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+    private static ScheduledThreadPoolExecutor create() {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "crawl-progress");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.setRemoveOnCancelPolicy(true);
+      return executor;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.udacity.webcrawler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link VisitedUrls} set that stores the {@link UrlFingerprint} of each URL instead of the URL
+ * itself, which takes about 11 to 21 bytes per URL instead of the hundreds of bytes of a
+ * {@link String} in a {@link java.util.concurrent.ConcurrentSkipListSet}.
+ *
+ * <p>The fingerprints live in open-addressed hash tables with linear probing, one per segment. A
+ * fingerprint is added with a single compare-and-set on its slot, so threads adding different URLs
+ * never block each other. Each segment has a {@link StampedLock} whose read lock is shared by
+ * every adding thread; it is only taken exclusively to double the size of that segment's table.
+ *
+ * <p>The tables can be stored on the Java heap, or in direct memory outside of it, for crawls that
+ * are large enough for the visited set to dominate the heap.
+ */
+final class FingerprintVisitedUrls implements VisitedUrls {
+  private static final int SEGMENT_COUNT = 64;
+  private static final int INITIAL_SEGMENT_CAPACITY = 256;
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  /**
+   * Creates an empty set.
+   *
+   * @param offHeap whether the fingerprints should be stored in direct memory instead of on the
+   *                Java heap.
+   */
+  FingerprintVisitedUrls(boolean offHeap) {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(offHeap);
+    }
+  }
+
+  @Override
+  public boolean add(String url) {
+    long fingerprint = UrlFingerprint.of(url);
+    // The top bits pick the segment, and the bottom bits pick the slot within it.
+    return segments[(int) (fingerprint >>> 58)].add(fingerprint);
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.count.get();
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  /**
+   * One independently resized hash table of fingerprints.
+   */
+  private static final class Segment {
+    private final boolean offHeap;
+    private final StampedLock lock = new StampedLock();
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile Slots slots;
+
+    Segment(boolean offHeap) {
+      this.offHeap = offHeap;
+      this.slots = Slots.create(INITIAL_SEGMENT_CAPACITY, offHeap);
+    }
+
+    boolean add(long fingerprint) {
+      while (true) {
+        Slots current;
+        int added;
+        long stamp = lock.readLock();
+        try {
+          current = slots;
+          added = insert(current, fingerprint);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+        if (added < 0) {
+          return false;
+        }
+        // Keep the table at most 3/4 full, so probe sequences stay short.
+        if (added > 0 && (long) count.incrementAndGet() * 4 <= (long) current.length() * 3) {
+          return true;
+        }
+        grow(current);
+        if (added > 0) {
+          return true;
+        }
+        // The table was full; try again now that it has been resized.
+      }
+    }
+
+    /**
+     * Inserts the fingerprint into the given table, returning 1 if it was added, -1 if it was
+     * already present, or 0 if the table is full.
+     */
+    private static int insert(Slots slots, long fingerprint) {
+      int mask = slots.length() - 1;
+      int index = (int) fingerprint & mask;
+      for (int probes = 0; probes < slots.length(); ) {
+        long existing = slots.get(index);
+        if (existing == fingerprint) {
+          return -1;
+        }
+        if (existing == 0) {
+          if (slots.compareAndSet(index, 0, fingerprint)) {
+            return 1;
+          }
+          // Lost a race for this slot; look at it again, in case it was the same fingerprint.
+          continue;
+        }
+        index = (index + 1) & mask;
+        probes++;
+      }
+      return 0;
+    }
+
+    /**
+     * Doubles the size of the table, unless another thread already replaced {@code current}.
+     */
+    private void grow(Slots current) {
+      long stamp = lock.writeLock();
+      try {
+        if (slots != current) {
+          return;
+        }
+        Slots grown = Slots.create(current.length() * 2, offHeap);
+        for (int i = 0; i < current.length(); i++) {
+          long fingerprint = current.get(i);
+          if (fingerprint != 0) {
+            insert(grown, fingerprint);
+          }
+        }
+        slots = grown;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * A fixed-size array of {@code long} slots that supports compare-and-set. Empty slots are 0.
+   */
+  private interface Slots {
+    int length();
+
+    long get(int index);
+
+    boolean compareAndSet(int index, long expected, long value);
+
+    static Slots create(int length, boolean offHeap) {
+      return offHeap ? new DirectSlots(length) : new HeapSlots(length);
+    }
+  }
+
+  private static final class HeapSlots implements Slots {
+    private final AtomicLongArray array;
+
+    HeapSlots(int length) {
+      array = new AtomicLongArray(length);
+    }
+
+    @Override
+    public int length() {
+      return array.length();
+    }
+
+    @Override
+    public long get(int index) {
+      return array.get(index);
+    }
+
+    @Override
+    public boolean compareAndSet(int index, long expected, long value) {
+      return array.compareAndSet(index, expected, value);
+    }
+  }
+
+  /**
+   * Slots stored in a direct {@link ByteBuffer}, which is allocated outside of the Java heap and
+   * zeroed by the JVM.
+   */
+  private static final class DirectSlots implements Slots {
+    private static final VarHandle LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final int length;
+
+    DirectSlots(int length) {
+      this.buffer = ByteBuffer.allocateDirect(Math.multiplyExact(length, Long.BYTES));
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public long get(int index) {
+      return (long) LONGS.getVolatile(buffer, index * Long.BYTES);
+    }
+
+    @Override
+    public boolean compareAndSet(int index, long expected, long value) {
+      return LONGS.compareAndSet(buffer, index * Long.BYTES, expected, value);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.CancellationToken;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that crawls breadth-first, one depth level at a time, on a
+ * {@link ForkJoinPool}.
+ *
+ * <p>Links are filtered and de-duplicated by a {@link CrawlFrontier} as they are discovered, so
+ * only URLs that will actually be downloaded ever become tasks. Each level is split in halves
+ * until a single URL remains, which keeps the join depth logarithmic in the width of a level
+ * instead of linear in the depth of the crawl.
+ *
+ * <p>If the {@code "maxRequestsPerHost"} or {@code "minHostDelayMillis"} options are set, each
+ * level is instead crawled by one worker per pool thread, taking URLs from a {@link HostScheduler}.
+ *
+ * <p>When the timeout passes, the crawl's {@link CancellationToken} is cancelled, which aborts the
+ * downloads in flight and turns every pending visit into a no-op. Pages that finish after that
+ * are not counted, and the crawler waits up to half a second for the pool to become quiescent
+ * before it ranks the words counted so far.
+ */
+final class FrontierWebCrawler implements WebCrawler {
+
+  /**
+   * How long a crawl that was cut short waits for the visits still running to wind down.
+   */
+  private static final Duration SHUTDOWN_GRACE = Duration.ofMillis(500);
+
+  private final Clock clock;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final ForkJoinPool pool;
+  private final int maxDepth;
+  private final PageParserFactory parserFactory;
+  private final UrlFilter ignoredUrls;
+  private final Provider<VisitedUrls> visitedUrlsProvider;
+  private final Provider<HostScheduler> schedulerProvider;
+  private final Duration progressInterval;
+  private final Profiler profiler;
+
+  @Inject
+  FrontierWebCrawler(
+      Clock clock,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @TargetParallelism int threadCount,
+      @MaxDepth int maxDepth,
+      PageParserFactory parserFactory,
+      @IgnoredUrls UrlFilter ignoredUrls,
+      Provider<VisitedUrls> visitedUrlsProvider,
+      Provider<HostScheduler> schedulerProvider,
+      @ProgressInterval Duration progressInterval,
+      Profiler profiler) {
+    this.clock = clock;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.pool = new ForkJoinPool(Math.min(threadCount, getMaxParallelism()));
+    this.maxDepth = maxDepth;
+    this.parserFactory = parserFactory;
+    this.ignoredUrls = ignoredUrls;
+    this.visitedUrlsProvider = visitedUrlsProvider;
+    this.schedulerProvider = schedulerProvider;
+    this.progressInterval = progressInterval;
+    this.profiler = profiler;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls, CrawlListener listener) {
+    Crawl crawl = new Crawl(CancellationToken.withDeadline(clock, clock.instant().plus(timeout)));
+    for (String url : startingUrls) {
+      crawl.frontier.offer(url);
+    }
+
+    try (CrawlProgress progress = CrawlProgress.start(
+        listener,
+        progressInterval,
+        popularWordCount,
+        crawl.wordCounts,
+        crawl.urlsVisited::get,
+        () -> Math.max(0, crawl.frontier.queuedCount() - crawl.urlsVisited.get()),
+        profiler,
+        crawl.cancellation)) {
+      for (int depth = maxDepth; depth > 0; depth--) {
+        List<String> level = crawl.frontier.advance();
+        if (level.isEmpty() || crawl.cancellation.isCancelled()) {
+          break;
+        }
+        // Links found on the deepest level can never be crawled, so don't bother queueing them.
+        boolean expandLinks = depth > 1;
+        List<Future<Void>> tasks;
+        if (crawl.scheduler.isLimiting()) {
+          tasks = crawlPolitely(crawl, level, expandLinks);
+        } else {
+          tasks = List.of(pool.submit(new LevelAction(crawl, level, 0, level.size(), expandLinks)));
+        }
+        if (!awaitAll(crawl.cancellation, tasks)) {
+          break;
+        }
+      }
+    } finally {
+      // Anything still running belongs to a crawl that is over.
+      crawl.cancellation.cancel();
+      pool.awaitQuiescence(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    Map<String, Integer> wordCounts = new HashMap<>();
+    if (!crawl.wordCounts.isEmpty()) {
+      wordCounts = crawl.wordCounts.top(popularWordCount);
+    }
+    return new CrawlResult.Builder()
+        .setWordCounts(wordCounts)
+        .setUrlsVisited(crawl.urlsVisited.get())
+        .build();
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Starts crawling a level with one worker per pool thread, each taking URLs from the crawl's
+   * {@link HostScheduler} until the level is done.
+   */
+  private List<Future<Void>> crawlPolitely(Crawl crawl, List<String> level, boolean expandLinks) {
+    level.forEach(crawl.scheduler::add);
+    int workerCount = Math.min(pool.getParallelism(), level.size());
+    List<Future<Void>> workers = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      workers.add(pool.submit(() -> {
+        for (String url = crawl.scheduler.next(); url != null; url = crawl.scheduler.next()) {
+          try {
+            if (crawl.cancellation.isCancelled()) {
+              break;
+            }
+            crawl.visit(url, expandLinks);
+          } finally {
+            crawl.scheduler.release(url);
+          }
+        }
+        return null;
+      }));
+    }
+    return workers;
+  }
+
+  /**
+   * Waits for every given task to finish, rethrowing the first failure.
+   *
+   * @return true if every task finished, false if the deadline passed first.
+   */
+  private static boolean awaitAll(CancellationToken cancellation, List<Future<Void>> tasks) {
+    for (Future<Void> task : tasks) {
+      try {
+        if (!cancellation.await(task)) {
+          return false;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while crawling", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Crawl failed", e.getCause());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * State shared by every task of a single call to {@link #crawl(List)}.
+   */
+  private final class Crawl {
+    final CancellationToken cancellation;
+    final CrawlFrontier frontier = new CrawlFrontier(ignoredUrls, visitedUrlsProvider.get());
+    final WordCountAccumulator wordCounts = new WordCountAccumulator();
+    final AtomicInteger urlsVisited = new AtomicInteger();
+    final HostScheduler scheduler = schedulerProvider.get();
+
+    Crawl(CancellationToken cancellation) {
+      this.cancellation = cancellation;
+      scheduler.cancelOn(cancellation);
+    }
+
+    /**
+     * Crawls a single URL, queueing the links it finds on the frontier if {@code expandLinks} is
+     * set.
+     */
+    void visit(String url, boolean expandLinks) {
+      if (cancellation.isCancelled()) {
+        return;
+      }
+      urlsVisited.incrementAndGet();
+      PageParser.Result result = parserFactory.get(url, cancellation).parse();
+      if (cancellation.isCancelled()) {
+        return;
+      }
+      result.forEachWordCount(wordCounts::add);
+      if (expandLinks) {
+        for (String link : result.getLinks()) {
+          frontier.offer(link);
+        }
+      }
+    }
+  }
+
+  /**
+   * Crawls the URLs in {@code [from, to)} of a single level, queueing the links it finds on the
+   * frontier for the next level if {@code expandLinks} is set.
+   */
+  private final class LevelAction extends RecursiveAction {
+    private final Crawl crawl;
+    private final List<String> level;
+    private final int from;
+    private final int to;
+    private final boolean expandLinks;
+
+    LevelAction(Crawl crawl, List<String> level, int from, int to, boolean expandLinks) {
+      this.crawl = crawl;
+      this.level = level;
+      this.from = from;
+      this.to = to;
+      this.expandLinks = expandLinks;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(
+            new LevelAction(crawl, level, from, mid, expandLinks),
+            new LevelAction(crawl, level, mid, to, expandLinks));
+        return;
+      }
+      crawl.visit(level.get(from), expandLinks);
+    }
+  }
+}
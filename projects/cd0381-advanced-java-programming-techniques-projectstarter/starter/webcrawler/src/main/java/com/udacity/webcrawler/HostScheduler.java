@@ -0,0 +1,211 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.CancellationToken;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out URLs to crawl workers so that no single host is hit too hard.
+ *
+ * <p>URLs are queued per host. {@link #next()} goes round-robin over the hosts with queued URLs
+ * and returns a URL from the first host that is allowed another request: one with fewer than
+ * {@code maxRequestsPerHost} requests in flight, whose last request started at least
+ * {@code minHostDelay} ago. A worker is therefore never stuck behind a throttled host while
+ * another host has work; it only waits if every host with queued URLs is throttled.
+ *
+ * <p>Every URL returned by {@link #next()} must be passed to {@link #release(String)} once it has
+ * been crawled. A scheduler keeps the per-host state for its whole lifetime, so one instance
+ * should be used for every level of a crawl, and a new instance for every crawl.
+ *
+ * <p>Once the crawl's {@link CancellationToken} is cancelled, see
+ * {@link #cancelOn(CancellationToken)}, the queued URLs are dropped and {@link #next()} returns
+ * null right away, even to workers that are waiting out a host's delay, so that no worker keeps
+ * crawling a level in the background after the crawl is over.
+ *
+ * <p>This class is thread-safe.
+ */
+final class HostScheduler {
+  private final int maxRequestsPerHost;
+  private final long minHostDelayNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition hostAvailable = lock.newCondition();
+  private final Map<String, Host> hosts = new HashMap<>();
+  private final Queue<Host> rotation = new ArrayDeque<>();
+  private int queuedUrls;
+  private boolean cancelled;
+
+  /**
+   * Creates a scheduler with the given per-host limits.
+   *
+   * @param maxRequestsPerHost the maximum number of requests in flight to any one host, or 0 for
+   *                           no limit.
+   * @param minHostDelay       the minimum time between the starts of two requests to the same
+   *                           host.
+   */
+  HostScheduler(int maxRequestsPerHost, Duration minHostDelay) {
+    if (maxRequestsPerHost < 0) {
+      throw new IllegalArgumentException("maxRequestsPerHost cannot be negative");
+    }
+    this.maxRequestsPerHost = (maxRequestsPerHost == 0) ? Integer.MAX_VALUE : maxRequestsPerHost;
+    this.minHostDelayNanos = minHostDelay.toNanos();
+  }
+
+  /**
+   * Returns true if this scheduler limits requests at all. If it does not, callers are free to
+   * skip it and run URLs in any order.
+   */
+  boolean isLimiting() {
+    return maxRequestsPerHost != Integer.MAX_VALUE || minHostDelayNanos > 0;
+  }
+
+  /**
+   * Makes this scheduler stop handing out URLs once the given token is cancelled.
+   */
+  void cancelOn(CancellationToken cancellation) {
+    cancellation.onCancel(this::cancel);
+  }
+
+  /**
+   * Drops every queued URL, and wakes up the workers waiting in {@link #next()}, which return null
+   * from then on. URLs that are in flight must still be released.
+   */
+  void cancel() {
+    lock.lock();
+    try {
+      cancelled = true;
+      for (Host host : rotation) {
+        host.urls.clear();
+        host.inRotation = false;
+      }
+      rotation.clear();
+      queuedUrls = 0;
+      hostAvailable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Queues the given URL to be returned by {@link #next()}. Does nothing if the scheduler was
+   * cancelled.
+   */
+  void add(String url) {
+    lock.lock();
+    try {
+      if (cancelled) {
+        return;
+      }
+      Host host = hosts.computeIfAbsent(hostOf(url), k -> new Host());
+      host.urls.add(url);
+      if (!host.inRotation) {
+        host.inRotation = true;
+        rotation.add(host);
+      }
+      queuedUrls++;
+      hostAvailable.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the next URL to crawl, waiting until a host is allowed another request if necessary.
+   *
+   * @return the next URL, or null if no URLs are queued or the scheduler was cancelled.
+   */
+  String next() throws InterruptedException {
+    lock.lock();
+    try {
+      while (!cancelled && queuedUrls > 0) {
+        long now = System.nanoTime();
+        long earliestStart = Long.MAX_VALUE;
+        for (int i = rotation.size(); i > 0; i--) {
+          Host host = rotation.remove();
+          if (host.inFlight < maxRequestsPerHost && now - host.nextStart >= 0) {
+            String url = host.urls.remove();
+            host.inFlight++;
+            host.nextStart = now + minHostDelayNanos;
+            queuedUrls--;
+            if (host.urls.isEmpty()) {
+              host.inRotation = false;
+            } else {
+              // Back of the line, so the other hosts get their turn first.
+              rotation.add(host);
+            }
+            return url;
+          }
+          rotation.add(host);
+          if (host.inFlight < maxRequestsPerHost) {
+            earliestStart = Math.min(earliestStart, host.nextStart - now);
+          }
+        }
+        if (earliestStart == Long.MAX_VALUE) {
+          // Every host is at its in-flight limit, so wait for a release.
+          hostAvailable.await();
+        } else {
+          hostAvailable.await(earliestStart, TimeUnit.NANOSECONDS);
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Marks a URL returned by {@link #next()} as no longer in flight.
+   */
+  void release(String url) {
+    lock.lock();
+    try {
+      Host host = hosts.get(hostOf(url));
+      if (host == null || host.inFlight == 0) {
+        throw new IllegalStateException("URL was not returned by next(): " + url);
+      }
+      host.inFlight--;
+      hostAvailable.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the lower-cased host, and port if there is one, of the given URL, or the empty string
+   * if it has none (for example, {@code file:} URLs).
+   */
+  static String hostOf(String url) {
+    int start = url.indexOf("://");
+    if (start < 0) {
+      return "";
+    }
+    start += 3;
+    int end = start;
+    while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+      end++;
+    }
+    int userInfo = url.lastIndexOf('@', end - 1);
+    if (userInfo >= start) {
+      start = userInfo + 1;
+    }
+    return url.substring(start, end).toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The queued URLs and request state of a single host.
+   */
+  private static final class Host {
+    final Queue<String> urls = new ArrayDeque<>();
+    boolean inRotation;
+    int inFlight;
+    long nextStart = System.nanoTime();
+  }
+}
@@ -5,10 +5,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 /**
- * A binding annotation for the crawler's list of ignored URL patterns.
+ * A binding annotation for the crawler's filter of ignored URLs.
  *
- * <p>The value bound to this annotation is the value of the {@code "ignoredUrl"} option from the
- * crawler configuration JSON.
+ * <p>The value bound to this annotation is a {@link UrlFilter} built from the {@code "ignoredUrls"}
+ * option of the crawler configuration JSON.
  */
 @Qualifier
 @Retention(RetentionPolicy.RUNTIME)
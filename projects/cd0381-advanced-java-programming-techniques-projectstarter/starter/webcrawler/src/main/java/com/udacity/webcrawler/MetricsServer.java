@@ -0,0 +1,138 @@
+package com.udacity.webcrawler;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * An HTTP endpoint that serves live metrics of a running crawl, as plain text, at
+ * {@code /metrics}.
+ *
+ * <p>The response starts with the progress of the crawl, taken from the snapshots that the server
+ * receives as the crawl's {@link CrawlListener}: the number of URLs visited so far, and the number
+ * of URLs visited per second since the previous snapshot. It is followed by the profile data, in
+ * the same format as {@link Profiler#writeData(Writer)}, with the calls, latency percentiles,
+ * counters and gauges recorded so far, which include the size of the crawl's frontier.
+ *
+ * <p>Requests are served one at a time, on a background thread. Neither the snapshots nor the
+ * profile data are guarded by locks, so serving a request never holds up the crawl.
+ */
+public final class MetricsServer implements CrawlListener, AutoCloseable {
+
+  private final Profiler profiler;
+  private final LongSupplier ticker;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private volatile Progress progress;
+
+  MetricsServer(Profiler profiler, InetSocketAddress address, LongSupplier ticker)
+      throws IOException {
+    this.profiler = Objects.requireNonNull(profiler);
+    this.ticker = Objects.requireNonNull(ticker);
+    this.progress = new Progress(0, 0, ticker.getAsLong());
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "metrics-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server = HttpServer.create(address, 0);
+    server.createContext("/metrics", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Starts serving metrics on the given port of the loopback address.
+   *
+   * @param profiler the profiler whose data to serve.
+   * @param port     the port to listen on, or 0 to pick any free port.
+   * @throws IOException if the server could not listen on the port.
+   */
+  public static MetricsServer start(Profiler profiler, int port) throws IOException {
+    return new MetricsServer(
+        profiler, new InetSocketAddress(InetAddress.getLoopbackAddress(), port), System::nanoTime);
+  }
+
+  /**
+   * Returns the port that the server listens on.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public boolean onProgress(CrawlResult snapshot) {
+    Progress previous = progress;
+    long now = ticker.getAsLong();
+    double pagesPerSecond = previous.pagesPerSecond;
+    if (now > previous.nanoTime) {
+      pagesPerSecond =
+          (snapshot.getUrlsVisited() - previous.urlsVisited) * 1e9 / (now - previous.nanoTime);
+    }
+    progress = new Progress(snapshot.getUrlsVisited(), pagesPerSecond, now);
+    return true;
+  }
+
+  /**
+   * Stops serving metrics. Requests that are being served are cut off.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      Progress current = progress;
+      StringWriter body = new StringWriter();
+      body.write("WebCrawler#urlsVisited: " + current.urlsVisited + System.lineSeparator());
+      body.write(
+          String.format(Locale.ROOT, "WebCrawler#pagesPerSecond: %.3f", current.pagesPerSecond));
+      body.write(System.lineSeparator());
+      profiler.writeData(body);
+
+      byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * The progress of the crawl as of its latest snapshot.
+   */
+  private static final class Progress {
+    private final int urlsVisited;
+    private final double pagesPerSecond;
+    private final long nanoTime;
+
+    Progress(int urlsVisited, double pagesPerSecond, long nanoTime) {
+      this.urlsVisited = urlsVisited;
+      this.pagesPerSecond = pagesPerSecond;
+      this.nanoTime = nanoTime;
+    }
+  }
+}
@@ -2,31 +2,58 @@ package com.udacity.webcrawler;
 
 import com.udacity.webcrawler.json.CrawlResult;
 
+import com.udacity.webcrawler.parser.CancellationToken;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.profiler.Profiler;
 import java.util.ArrayList;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Pattern;
+import java.util.HashMap;
 import javax.inject.Inject;
+import javax.inject.Provider;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A concrete implementation of {@link WebCrawler} that runs multiple threads on a
  * {@link ForkJoinPool} to fetch and process multiple web pages in parallel.
+ *
+ * <p>When the timeout passes, the crawl's {@link CancellationToken} is cancelled, which aborts the
+ * downloads in flight and makes every pending task return without doing anything. Pages that
+ * finish after that are not counted. The crawler then waits up to {@link #SHUTDOWN_GRACE} for the
+ * pool to become quiescent before it ranks the words, so the words of a page that was already
+ * being merged at the deadline are either all counted or not at all. Only a task that is still
+ * busy when the grace period runs out, such as one stuck on a very large page, can make a
+ * difference to the ranking after that.
+ *
+ * <p>If the {@code "adaptiveConcurrency"} option is set, the number of pages downloaded at once is
+ * not fixed to the number of pool threads, but adjusted during each crawl by an
+ * {@link AdaptiveConcurrencyLimit}, up to the {@code "fetchConcurrency"} option.
  */
 final class ParallelWebCrawler implements WebCrawler {
+
+  /**
+   * How long a crawl that was cut short waits for its remaining tasks to wind down.
+   */
+  private static final Duration SHUTDOWN_GRACE = Duration.ofMillis(500);
+
   private final Clock clock;
   private final Duration timeout;
   private final int popularWordCount;
   private final ForkJoinPool pool;
   private final int maxDepth;
   private final PageParserFactory parserFactory;
-  private final List<Pattern> ignoredUrls;
+  private final UrlFilter ignoredUrls;
+  private final Provider<VisitedUrls> visitedUrlsProvider;
+  private final boolean adaptiveConcurrency;
+  private final int fetchConcurrency;
+  private final Profiler profiler;
+  private final Duration progressInterval;
 
   @Inject
   ParallelWebCrawler(
@@ -36,7 +63,12 @@ final class ParallelWebCrawler implements WebCrawler {
       @TargetParallelism int threadCount,
       @MaxDepth int maxDepth,
       PageParserFactory parserFactory,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls UrlFilter ignoredUrls,
+      Provider<VisitedUrls> visitedUrlsProvider,
+      @AdaptiveConcurrency boolean adaptiveConcurrency,
+      @FetchConcurrency int fetchConcurrency,
+      Profiler profiler,
+      @ProgressInterval Duration progressInterval) {
     this.clock = clock;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
@@ -44,43 +76,83 @@ final class ParallelWebCrawler implements WebCrawler {
     this.maxDepth = maxDepth;
     this.parserFactory = parserFactory;
     this.ignoredUrls = ignoredUrls;
+    this.visitedUrlsProvider = visitedUrlsProvider;
+    this.adaptiveConcurrency = adaptiveConcurrency;
+    this.fetchConcurrency = fetchConcurrency;
+    this.profiler = profiler;
+    this.progressInterval = progressInterval;
   }
 
   @Override
-  public CrawlResult crawl(List<String> startingUrls) {
+  public CrawlResult crawl(List<String> startingUrls, CrawlListener listener) {
 
-    Map<String, Integer> wordCounts = new ConcurrentHashMap<>();
-    ConcurrentSkipListSet<String> visitedUrls = new ConcurrentSkipListSet<>();
+    WordCountAccumulator wordCounts = new WordCountAccumulator();
+    VisitedUrls visitedUrls = visitedUrlsProvider.get();
     List<CountWordsAction> countWordsActions = new ArrayList<>();
 
     // Start clock
     Instant timeLimit = clock.instant().plus(timeout);
+    CancellationToken cancellation = CancellationToken.withDeadline(clock, timeLimit);
+    AdaptiveConcurrencyLimit concurrencyLimit = AdaptiveConcurrencyLimit.DISABLED;
+    if (adaptiveConcurrency) {
+      int threads = pool.getParallelism();
+      concurrencyLimit = new AdaptiveConcurrencyLimit(
+          threads, Math.max(threads, fetchConcurrency), pool, profiler);
+    }
 
     for (final String url : startingUrls) {
-      if (clock.instant().isAfter(timeLimit))
+      if (cancellation.isCancelled())
         break;
 
       countWordsActions.add(
           new CountWordsAction.Builder()
               .setMaxDepth(maxDepth)
-              .setClock(clock)
-              .setTimeLimit(timeLimit)
+              .setCancellationToken(cancellation)
               .setUrl(url)
               .setWordCounts(wordCounts)
               .setParserFactory(parserFactory)
               .setVisitedUrls(visitedUrls)
               .setIgnoredUrls(ignoredUrls)
+              .setConcurrencyLimit(concurrencyLimit)
               .build()
       );
     }
+    List<ForkJoinTask<Void>> tasks = new ArrayList<>();
     for (CountWordsAction task: countWordsActions)
-      pool.invoke(task);
+      tasks.add(pool.submit(task));
+    // Every page waiting to be crawled is a task queued in the pool.
+    try (CrawlProgress progress = CrawlProgress.start(
+        listener,
+        progressInterval,
+        popularWordCount,
+        wordCounts,
+        visitedUrls::size,
+        () -> (int) Math.min(
+            Integer.MAX_VALUE, pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount()),
+        profiler,
+        cancellation)) {
+      for (ForkJoinTask<Void> task : tasks) {
+        if (!cancellation.await(task))
+          break;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while crawling", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Crawl failed", e.getCause());
+    } finally {
+      // Anything still running belongs to a crawl that is over.
+      cancellation.cancel();
+      // Tasks still merging a page finish within moments, since their downloads were aborted.
+      pool.awaitQuiescence(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
+    Map<String, Integer> result = new HashMap<>();
     if (!wordCounts.isEmpty())
-      wordCounts = WordCounts.sort(wordCounts, popularWordCount);
+      result = wordCounts.top(popularWordCount);
 
     return new CrawlResult.Builder()
-        .setWordCounts(wordCounts)
+        .setWordCounts(result)
         .setUrlsVisited(visitedUrls.size())
         .build();
   }
@@ -1,22 +1,28 @@
 package com.udacity.webcrawler;
 
 import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.CancellationToken;
 import com.udacity.webcrawler.parser.PageParser;
 import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
 import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link WebCrawler} that downloads and processes one page at a time.
+ *
+ * <p>A download in flight when the timeout passes is aborted by the crawl's
+ * {@link CancellationToken}, so the crawl never overruns its timeout by more than the time it takes
+ * to parse one page.
+ *
+ * <p>The word counts and visited URLs are kept in thread-safe collections even though only one
+ * thread updates them, so that a {@link CrawlListener} can be sent snapshots from another thread.
  */
 final class SequentialWebCrawler implements WebCrawler {
 
@@ -25,7 +31,9 @@ final class SequentialWebCrawler implements WebCrawler {
   private final Duration timeout;
   private final int popularWordCount;
   private final int maxDepth;
-  private final List<Pattern> ignoredUrls;
+  private final UrlFilter ignoredUrls;
+  private final Duration progressInterval;
+  private final Profiler profiler;
 
   @Inject
   SequentialWebCrawler(
@@ -34,64 +42,75 @@ final class SequentialWebCrawler implements WebCrawler {
       @Timeout Duration timeout,
       @PopularWordCount int popularWordCount,
       @MaxDepth int maxDepth,
-      @IgnoredUrls List<Pattern> ignoredUrls) {
+      @IgnoredUrls UrlFilter ignoredUrls,
+      @ProgressInterval Duration progressInterval,
+      Profiler profiler) {
     this.clock = clock;
     this.parserFactory = parserFactory;
     this.timeout = timeout;
     this.popularWordCount = popularWordCount;
     this.maxDepth = maxDepth;
     this.ignoredUrls = ignoredUrls;
+    this.progressInterval = progressInterval;
+    this.profiler = profiler;
   }
 
   @Override
-  public CrawlResult crawl(List<String> startingUrls) {
-    Instant deadline = clock.instant().plus(timeout);
-    Map<String, Integer> counts = new HashMap<>();
-    Set<String> visitedUrls = new HashSet<>();
-    for (String url : startingUrls) {
-      crawlInternal(url, deadline, maxDepth, counts, visitedUrls);
+  public CrawlResult crawl(List<String> startingUrls, CrawlListener listener) {
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plus(timeout));
+    WordCountAccumulator counts = new WordCountAccumulator();
+    Set<String> visitedUrls = ConcurrentHashMap.newKeySet();
+    // The links of each page are followed depth-first by recursion, so there is no frontier.
+    try (CrawlProgress progress = CrawlProgress.start(
+        listener,
+        progressInterval,
+        popularWordCount,
+        counts,
+        visitedUrls::size,
+        null,
+        profiler,
+        cancellation)) {
+      for (String url : startingUrls) {
+        crawlInternal(url, cancellation, maxDepth, counts, visitedUrls);
+      }
+    } finally {
+      // Stops the deadline timer, if a download started one.
+      cancellation.cancel();
     }
 
     if (counts.isEmpty()) {
       return new CrawlResult.Builder()
-          .setWordCounts(counts)
+          .setWordCounts(new HashMap<>())
           .setUrlsVisited(visitedUrls.size())
           .build();
     }
 
     return new CrawlResult.Builder()
-        .setWordCounts(WordCounts.sort(counts, popularWordCount))
+        .setWordCounts(counts.top(popularWordCount))
         .setUrlsVisited(visitedUrls.size())
         .build();
   }
 
   private void crawlInternal(
       String url,
-      Instant deadline,
+      CancellationToken cancellation,
       int maxDepth,
-      Map<String, Integer> counts,
+      WordCountAccumulator counts,
       Set<String> visitedUrls) {
-    if (maxDepth == 0 || clock.instant().isAfter(deadline)) {
+    if (maxDepth == 0 || cancellation.isCancelled()) {
       return;
     }
-    for (Pattern pattern : ignoredUrls) {
-      if (pattern.matcher(url).matches()) {
-        return;
-      }
+    if (ignoredUrls.isIgnored(url)) {
+      return;
     }
     if (!visitedUrls.add(url))
       return;
 
-    PageParser.Result result = parserFactory.get(url).parse();
-    for (Map.Entry<String, Integer> e : result.getWordCounts().entrySet()) {
-      if (counts.containsKey(e.getKey())) {
-        counts.put(e.getKey(), e.getValue() + counts.get(e.getKey()));
-      } else {
-        counts.put(e.getKey(), e.getValue());
-      }
-    }
+    PageParser.Result result = parserFactory.get(url, cancellation).parse();
+    result.forEachWordCount(counts::add);
     for (String link : result.getLinks()) {
-      crawlInternal(link, deadline, maxDepth - 1, counts, visitedUrls);
+      crawlInternal(link, cancellation, maxDepth - 1, counts, visitedUrls);
     }
   }
 }
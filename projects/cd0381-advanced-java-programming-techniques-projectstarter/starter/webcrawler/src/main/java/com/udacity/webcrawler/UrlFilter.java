@@ -0,0 +1,277 @@
+package com.udacity.webcrawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether a URL matches any of the crawler's ignored URL patterns.
+ *
+ * <p>Most ignore rules in practice are a literal with wildcards around it: a site prefix like
+ * {@code "http://blog\.example\.com/.*"}, a file extension like {@code ".*\.pdf"}, or a tracking
+ * parameter like {@code ".*utm_source=.*"}. Instead of running each such rule as its own regex,
+ * they are indexed when the filter is created:
+ *
+ * <ul>
+ *   <li>{@code "literal"} goes into a hash set of exact URLs,
+ *   <li>{@code "literal.*"} goes into a prefix trie, walked from the start of the URL,
+ *   <li>{@code ".*literal"} goes into a suffix trie, walked backwards from the end of the URL,
+ *   <li>{@code ".*literal.*"} goes into a trie that is walked from every position of the URL.
+ * </ul>
+ *
+ * <p>Every other pattern is merged into one alternation, so a URL costs at most one regex match
+ * no matter how many rules there are.
+ *
+ * <p>This class is thread-safe.
+ */
+final class UrlFilter {
+
+  /**
+   * Matches regex syntax that changes meaning when a pattern is placed inside an alternation:
+   * back-references and named groups.
+   */
+  private static final Pattern UNMERGEABLE_SYNTAX = Pattern.compile("\\\\[1-9k]|\\(\\?<[a-zA-Z]");
+
+  private final List<Pattern> patterns;
+  private final Set<String> exact;
+  private final Trie prefixes;
+  private final Trie suffixes;
+  private final Trie substrings;
+  private final Pattern[] regexes;
+
+  private UrlFilter(
+      List<Pattern> patterns,
+      Set<String> exact,
+      Trie prefixes,
+      Trie suffixes,
+      Trie substrings,
+      Pattern[] regexes) {
+    this.patterns = patterns;
+    this.exact = exact;
+    this.prefixes = prefixes;
+    this.suffixes = suffixes;
+    this.substrings = substrings;
+    this.regexes = regexes;
+  }
+
+  /**
+   * Builds a filter that ignores the URLs matched by any of the given patterns.
+   */
+  static UrlFilter compile(List<Pattern> ignoredUrls) {
+    Set<String> exact = new HashSet<>();
+    List<String> prefixes = new ArrayList<>();
+    List<String> suffixes = new ArrayList<>();
+    List<String> substrings = new ArrayList<>();
+    List<Pattern> mergeable = new ArrayList<>();
+    List<Pattern> regexes = new ArrayList<>();
+
+    for (Pattern pattern : ignoredUrls) {
+      String regex = pattern.pattern();
+      if (regex.startsWith("^")) {
+        regex = regex.substring(1);
+      }
+      if (regex.endsWith("$") && !regex.endsWith("\\$")) {
+        regex = regex.substring(0, regex.length() - 1);
+      }
+      boolean anyPrefix = regex.startsWith(".*");
+      boolean anySuffix = regex.length() >= (anyPrefix ? 4 : 2) && regex.endsWith(".*")
+          && !regex.endsWith("\\.*");
+      String literal =
+          unescape(regex.substring(anyPrefix ? 2 : 0, regex.length() - (anySuffix ? 2 : 0)));
+
+      if (pattern.flags() != 0 || literal == null) {
+        if (pattern.flags() == 0 && !UNMERGEABLE_SYNTAX.matcher(pattern.pattern()).find()) {
+          mergeable.add(pattern);
+        } else {
+          regexes.add(pattern);
+        }
+      } else if (anyPrefix && anySuffix) {
+        substrings.add(literal);
+      } else if (anyPrefix) {
+        suffixes.add(new StringBuilder(literal).reverse().toString());
+      } else if (anySuffix) {
+        prefixes.add(literal);
+      } else {
+        exact.add(literal);
+      }
+    }
+
+    if (mergeable.size() == 1) {
+      regexes.add(mergeable.get(0));
+    } else if (!mergeable.isEmpty()) {
+      String alternation =
+          mergeable.stream().map(p -> "(?:" + p.pattern() + ")").collect(Collectors.joining("|"));
+      try {
+        regexes.add(Pattern.compile(alternation));
+      } catch (PatternSyntaxException e) {
+        // A pattern that compiles on its own can still break the alternation, for example by
+        // ending with an unterminated \Q quote. Fall back to matching them one by one.
+        regexes.addAll(mergeable);
+      }
+    }
+
+    return new UrlFilter(
+        List.copyOf(ignoredUrls),
+        exact,
+        Trie.of(prefixes),
+        Trie.of(suffixes),
+        Trie.of(substrings),
+        regexes.toArray(new Pattern[0]));
+  }
+
+  /**
+   * Returns true if the given URL matches any of the ignored URL patterns.
+   */
+  boolean isIgnored(String url) {
+    Objects.requireNonNull(url);
+    if (containsLineTerminator(url)) {
+      // ".*" does not match line terminators. URLs almost never contain them, so rather than
+      // teaching the indexes about that, fall back to the original patterns.
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(url).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (exact.contains(url)
+        || prefixes.matchesForward(url, 0)
+        || suffixes.matchesBackward(url, url.length() - 1)) {
+      return true;
+    }
+    if (!substrings.isEmpty()) {
+      for (int i = 0; i <= url.length(); i++) {
+        if (substrings.matchesForward(url, i)) {
+          return true;
+        }
+      }
+    }
+    for (Pattern regex : regexes) {
+      if (regex.matcher(url).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the literal text matched by the given regex, or null if it matches anything other than
+   * a single literal string.
+   */
+  private static String unescape(String regex) {
+    StringBuilder literal = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        // Only escaped punctuation is a literal; "\d", "\Q" and friends are not.
+        if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+          return null;
+        }
+        literal.append(regex.charAt(++i));
+      } else if ("^$.|?*+()[]{}".indexOf(c) >= 0) {
+        return null;
+      } else {
+        literal.append(c);
+      }
+    }
+    return literal.toString();
+  }
+
+  private static boolean containsLineTerminator(String url) {
+    for (int i = 0; i < url.length(); i++) {
+      char c = url.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * An immutable character trie that answers "does any key start at this position of the text?".
+   */
+  private static final class Trie {
+    private static final Trie EMPTY = new Trie();
+
+    private char[] labels = new char[0];
+    private Trie[] children = new Trie[0];
+    private boolean terminal;
+
+    static Trie of(List<String> keys) {
+      if (keys.isEmpty()) {
+        return EMPTY;
+      }
+      Trie root = new Trie();
+      for (String key : keys) {
+        Trie node = root;
+        for (int i = 0; i < key.length(); i++) {
+          node = node.childOrCreate(key.charAt(i));
+        }
+        node.terminal = true;
+      }
+      return root;
+    }
+
+    boolean isEmpty() {
+      return this == EMPTY;
+    }
+
+    /**
+     * Returns true if a key is spelled by {@code text} read forwards starting at {@code start}.
+     */
+    boolean matchesForward(String text, int start) {
+      Trie node = this;
+      for (int i = start; !node.terminal; i++) {
+        if (i == text.length() || (node = node.child(text.charAt(i))) == null) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns true if a key is spelled by {@code text} read backwards starting at {@code start}.
+     */
+    boolean matchesBackward(String text, int start) {
+      Trie node = this;
+      for (int i = start; !node.terminal; i--) {
+        if (i < 0 || (node = node.child(text.charAt(i))) == null) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Trie child(char label) {
+      int i = Arrays.binarySearch(labels, label);
+      return (i >= 0) ? children[i] : null;
+    }
+
+    private Trie childOrCreate(char label) {
+      int i = Arrays.binarySearch(labels, label);
+      if (i >= 0) {
+        return children[i];
+      }
+      // Keep the labels sorted, so lookups can binary search them.
+      int insertAt = -i - 1;
+      char[] newLabels = new char[labels.length + 1];
+      Trie[] newChildren = new Trie[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, insertAt);
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      newLabels[insertAt] = label;
+      newChildren[insertAt] = new Trie();
+      System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+      labels = newLabels;
+      children = newChildren;
+      return newChildren[insertAt];
+    }
+  }
+}
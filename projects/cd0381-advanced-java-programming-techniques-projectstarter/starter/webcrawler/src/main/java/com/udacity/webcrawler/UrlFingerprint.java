@@ -0,0 +1,109 @@
+package com.udacity.webcrawler;
+
+import java.util.Locale;
+
+/**
+ * Utility methods to reduce a URL to a 64-bit fingerprint, so that sets of URLs can store a
+ * {@code long} instead of the whole string.
+ *
+ * <p>URLs are normalized before they are hashed, so that spellings of a URL that always refer to
+ * the same page have the same fingerprint. Two different URLs share a fingerprint with probability
+ * of about 2<sup>-64</sup>; even a crawl of 100 million URLs is unlikely to see a single collision.
+ */
+final class UrlFingerprint {
+
+  /**
+   * Returns the fingerprint of the given URL, after normalizing it. Never returns 0, so that 0 can
+   * be used as an empty marker.
+   */
+  static long of(String url) {
+    String normalized = normalize(url);
+    // 64-bit FNV-1a, finished with the MurmurHash3 mixer so every input bit affects every output
+    // bit.
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < normalized.length(); i++) {
+      hash ^= normalized.charAt(i);
+      hash *= 0x100000001B3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+    hash *= 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return (hash == 0) ? 1 : hash;
+  }
+
+  /**
+   * Returns a normalized form of the given URL: the scheme and host are lower-cased, the port is
+   * removed if it is the scheme's default, an empty HTTP path becomes {@code "/"}, and the fragment
+   * is removed. Strings that do not look like absolute URLs are returned unchanged, except for the
+   * fragment.
+   */
+  static String normalize(String url) {
+    int fragment = url.indexOf('#');
+    if (fragment >= 0) {
+      url = url.substring(0, fragment);
+    }
+    int colon = url.indexOf(':');
+    if (colon <= 0 || !isScheme(url, colon)) {
+      return url;
+    }
+    String scheme = url.substring(0, colon).toLowerCase(Locale.ROOT);
+    if (!url.startsWith("//", colon + 1)) {
+      return scheme + url.substring(colon);
+    }
+
+    int authorityStart = colon + 3;
+    int authorityEnd = authorityStart;
+    while (authorityEnd < url.length() && "/?".indexOf(url.charAt(authorityEnd)) < 0) {
+      authorityEnd++;
+    }
+    String authority = url.substring(authorityStart, authorityEnd);
+    String path = url.substring(authorityEnd);
+
+    // Only the host is case-insensitive. User info, if there is any, is kept as it is.
+    int hostStart = authority.lastIndexOf('@') + 1;
+    int portStart = authority.lastIndexOf(':');
+    if (portStart < hostStart || authority.indexOf(']', portStart) >= 0) {
+      // No port, or the last ':' is part of an IPv6 literal.
+      portStart = authority.length();
+    }
+    String host = authority.substring(hostStart, portStart).toLowerCase(Locale.ROOT);
+    String port = authority.substring(portStart);
+    if (port.equals(":") || port.equals(":" + defaultPort(scheme))) {
+      port = "";
+    }
+
+    if (path.isEmpty() && (scheme.equals("http") || scheme.equals("https"))) {
+      path = "/";
+    }
+    return scheme + "://" + authority.substring(0, hostStart) + host + port + path;
+  }
+
+  private static boolean isScheme(String url, int colon) {
+    for (int i = 0; i < colon; i++) {
+      char c = url.charAt(i);
+      boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+          || (i > 0 && ((c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.'));
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int defaultPort(String scheme) {
+    switch (scheme) {
+      case "http":
+        return 80;
+      case "https":
+        return 443;
+      default:
+        return -1;
+    }
+  }
+
+  private UrlFingerprint() {
+    // This class cannot be instantiated
+  }
+}
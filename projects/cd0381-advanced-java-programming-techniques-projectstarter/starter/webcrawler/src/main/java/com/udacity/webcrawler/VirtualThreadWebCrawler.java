@@ -0,0 +1,222 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.parser.CancellationToken;
+import com.udacity.webcrawler.parser.PageParser;
+import com.udacity.webcrawler.parser.PageParserFactory;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link WebCrawler} that runs every download on its own thread, so the number of pages being
+ * fetched at once is bounded by the {@code "fetchConcurrency"} option instead of the number of CPU
+ * cores.
+ *
+ * <p>On Java 21 and newer, each download runs on a virtual thread, which costs next to nothing
+ * while it is blocked on the network. On older runtimes the crawler falls back to a cached pool of
+ * platform threads, which still holds at most {@code fetchConcurrency} threads.
+ *
+ * <p>Like {@link FrontierWebCrawler}, pages are crawled breadth-first, one depth level at a time.
+ * The URLs of a level are handed out by a {@link HostScheduler}, which spreads the downloads over
+ * hosts according to the {@code "maxRequestsPerHost"} and {@code "minHostDelayMillis"} options.
+ *
+ * <p>When the timeout passes, the crawl's {@link CancellationToken} is cancelled, which aborts the
+ * downloads in flight. Pages that finish after that are not counted, and the crawler gives its
+ * workers up to half a second to exit before it ranks the words counted so far.
+ */
+final class VirtualThreadWebCrawler implements WebCrawler {
+
+  /**
+   * How long a crawl that was cut short waits for its workers to exit.
+   */
+  private static final Duration SHUTDOWN_GRACE = Duration.ofMillis(500);
+
+  private final Clock clock;
+  private final Duration timeout;
+  private final int popularWordCount;
+  private final int maxDepth;
+  private final int fetchConcurrency;
+  private final PageParserFactory parserFactory;
+  private final UrlFilter ignoredUrls;
+  private final Provider<VisitedUrls> visitedUrlsProvider;
+  private final Provider<HostScheduler> schedulerProvider;
+  private final Duration progressInterval;
+  private final Profiler profiler;
+
+  @Inject
+  VirtualThreadWebCrawler(
+      Clock clock,
+      @Timeout Duration timeout,
+      @PopularWordCount int popularWordCount,
+      @MaxDepth int maxDepth,
+      @FetchConcurrency int fetchConcurrency,
+      PageParserFactory parserFactory,
+      @IgnoredUrls UrlFilter ignoredUrls,
+      Provider<VisitedUrls> visitedUrlsProvider,
+      Provider<HostScheduler> schedulerProvider,
+      @ProgressInterval Duration progressInterval,
+      Profiler profiler) {
+    this.clock = clock;
+    this.timeout = timeout;
+    this.popularWordCount = popularWordCount;
+    this.maxDepth = maxDepth;
+    this.fetchConcurrency = fetchConcurrency;
+    this.parserFactory = parserFactory;
+    this.ignoredUrls = ignoredUrls;
+    this.visitedUrlsProvider = visitedUrlsProvider;
+    this.schedulerProvider = schedulerProvider;
+    this.progressInterval = progressInterval;
+    this.profiler = profiler;
+  }
+
+  @Override
+  public CrawlResult crawl(List<String> startingUrls, CrawlListener listener) {
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plus(timeout));
+    CrawlFrontier frontier = new CrawlFrontier(ignoredUrls, visitedUrlsProvider.get());
+    HostScheduler scheduler = schedulerProvider.get();
+    scheduler.cancelOn(cancellation);
+    WordCountAccumulator wordCounts = new WordCountAccumulator();
+    AtomicInteger urlsVisited = new AtomicInteger();
+
+    for (String url : startingUrls) {
+      frontier.offer(url);
+    }
+
+    ExecutorService executor = newFetchExecutor();
+    try (CrawlProgress progress = CrawlProgress.start(
+        listener,
+        progressInterval,
+        popularWordCount,
+        wordCounts,
+        urlsVisited::get,
+        () -> Math.max(0, frontier.queuedCount() - urlsVisited.get()),
+        profiler,
+        cancellation)) {
+      for (int depth = maxDepth; depth > 0; depth--) {
+        List<String> level = frontier.advance();
+        if (level.isEmpty() || cancellation.isCancelled()) {
+          break;
+        }
+        boolean expandLinks = depth > 1;
+        level.forEach(scheduler::add);
+
+        // Each worker keeps taking URLs from the scheduler until the level is done, so at most
+        // fetchConcurrency downloads are in flight, and a host that has to wait never holds up a
+        // worker while other hosts have URLs left.
+        int workerCount = Math.min(fetchConcurrency, level.size());
+        List<Future<?>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+          workers.add(executor.submit(() -> {
+            for (String url = scheduler.next(); url != null; url = scheduler.next()) {
+              try {
+                if (cancellation.isCancelled()) {
+                  break;
+                }
+                urlsVisited.incrementAndGet();
+                PageParser.Result result = parserFactory.get(url, cancellation).parse();
+                if (cancellation.isCancelled()) {
+                  break;
+                }
+                result.forEachWordCount(wordCounts::add);
+                if (expandLinks) {
+                  for (String link : result.getLinks()) {
+                    frontier.offer(link);
+                  }
+                }
+              } finally {
+                scheduler.release(url);
+              }
+            }
+            return null;
+          }));
+        }
+        if (!awaitAll(cancellation, workers)) {
+          break;
+        }
+      }
+    } finally {
+      // Anything still running belongs to a crawl that is over.
+      cancellation.cancel();
+      // Interrupts the workers that are still waiting for a download, so that the platform
+      // threads of the fallback pool do not outlive the crawl.
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+
+    Map<String, Integer> result = new HashMap<>();
+    if (!wordCounts.isEmpty()) {
+      result = wordCounts.top(popularWordCount);
+    }
+    return new CrawlResult.Builder()
+        .setWordCounts(result)
+        .setUrlsVisited(urlsVisited.get())
+        .build();
+  }
+
+  @Override
+  public int getMaxParallelism() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Waits for every given worker to finish, rethrowing the first failure.
+   *
+   * @return true if every worker finished, false if the deadline passed first.
+   */
+  private static boolean awaitAll(CancellationToken cancellation, List<Future<?>> workers) {
+    for (Future<?> worker : workers) {
+      try {
+        if (!cancellation.await(worker)) {
+          return false;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for downloads", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Download failed", e.getCause());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Waits up to {@link #SHUTDOWN_GRACE} for the given executor's workers to exit, so that none of
+   * them is still adding words while the crawler ranks them.
+   */
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      executor.awaitTermination(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns an executor that starts a new virtual thread for each task if the running JVM supports
+   * it, or an executor backed by a cached pool of platform threads otherwise.
+   */
+  private static ExecutorService newFetchExecutor() {
+    try {
+      // Looked up reflectively because the project is compiled for Java 11.
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.udacity.webcrawler;
+
+/**
+ * The set of URLs a single crawl has already visited.
+ *
+ * <p>Implementations must be thread-safe. A new instance is needed for every crawl; crawlers get
+ * one from an injected {@code Provider<VisitedUrls>}.
+ */
+interface VisitedUrls {
+
+  /**
+   * Marks the given URL as visited.
+   *
+   * @return true if the URL had not been visited before, which means the caller should crawl it.
+   */
+  boolean add(String url);
+
+  /**
+   * Returns the number of URLs that have been added, that is, the number of calls to
+   * {@link #add(String)} that returned true.
+   */
+  int size();
+}
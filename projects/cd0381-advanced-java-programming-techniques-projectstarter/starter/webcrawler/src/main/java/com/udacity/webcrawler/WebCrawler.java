@@ -17,7 +17,24 @@ public interface WebCrawler {
    * @return the {@link CrawlResult} of the crawl.
    */
   @Profiled
-  CrawlResult crawl(List<String> startingUrls);
+  default CrawlResult crawl(List<String> startingUrls) {
+    return crawl(startingUrls, CrawlListener.NONE);
+  }
+
+  /**
+   * Starts a crawl at the given URLs, and reports its progress to the given listener while it
+   * runs.
+   *
+   * <p>The listener is called on a background thread, every {@code "progressIntervalMillis"}, with
+   * a snapshot of the crawl so far. If it returns false, the crawl stops early, and returns what it
+   * has counted so far.
+   *
+   * @param startingUrls the starting points of the crawl.
+   * @param listener     the listener that receives the snapshots.
+   * @return the {@link CrawlResult} of the crawl.
+   */
+  @Profiled
+  CrawlResult crawl(List<String> startingUrls, CrawlListener listener);
 
   /**
    * Returns the maximum amount of parallelism (number of CPU cores) supported by this web crawler.
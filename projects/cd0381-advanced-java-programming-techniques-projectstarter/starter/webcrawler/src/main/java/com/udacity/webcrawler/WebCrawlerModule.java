@@ -18,7 +18,6 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * Guice dependency injection module that installs all the required dependencies to run the web
@@ -33,6 +32,13 @@ import java.util.regex.Pattern;
  */
 public final class WebCrawlerModule extends AbstractModule {
 
+  /**
+   * The crawlers that honor {@link CrawlerConfiguration#getMaxRequestsPerHost()} and
+   * {@link CrawlerConfiguration#getMinHostDelay()}, in order of preference.
+   */
+  private static final List<Class<? extends WebCrawler>> POLITE_IMPLEMENTATIONS =
+      List.of(FrontierWebCrawler.class, VirtualThreadWebCrawler.class);
+
   private final CrawlerConfiguration config;
 
   /**
@@ -49,18 +55,29 @@ public final class WebCrawlerModule extends AbstractModule {
         Multibinder.newSetBinder(binder(), WebCrawler.class, Internal.class);
     multibinder.addBinding().to(SequentialWebCrawler.class);
     multibinder.addBinding().to(ParallelWebCrawler.class);
+    multibinder.addBinding().to(FrontierWebCrawler.class);
+    multibinder.addBinding().to(VirtualThreadWebCrawler.class);
 
     bind(Clock.class).toInstance(Clock.systemUTC());
     bind(Key.get(Integer.class, MaxDepth.class)).toInstance(config.getMaxDepth());
     bind(Key.get(Integer.class, PopularWordCount.class)).toInstance(config.getPopularWordCount());
     bind(Key.get(Duration.class, Timeout.class)).toInstance(config.getTimeout());
-    bind(new Key<List<Pattern>>(IgnoredUrls.class) {
-    }).toInstance(config.getIgnoredUrls());
+    bind(Key.get(Integer.class, FetchConcurrency.class)).toInstance(config.getFetchConcurrency());
+    bind(Key.get(Boolean.class, AdaptiveConcurrency.class))
+        .toInstance(config.isAdaptiveConcurrency());
+    bind(Key.get(Duration.class, ProgressInterval.class)).toInstance(config.getProgressInterval());
+    bind(Key.get(UrlFilter.class, IgnoredUrls.class))
+        .toInstance(UrlFilter.compile(config.getIgnoredUrls()));
 
     install(
         new ParserModule.Builder()
             .setTimeout(config.getTimeout())
             .setIgnoredWords(config.getIgnoredWords())
+            .setPipelined(config.isPipelinedParsing())
+            .setStreaming(config.isStreamingParsing())
+            .setPageCacheDirectory(config.getPageCacheDirectory())
+            .setResultCacheMaxWeight(config.getResultCacheMaxWeight())
+            .setResultCacheTtl(config.getResultCacheTtl())
             .build());
   }
 
@@ -78,6 +95,19 @@ public final class WebCrawlerModule extends AbstractModule {
           .findFirst()
           .orElseThrow(() -> new ProvisionException("Implementation not found: " + override));
     }
+    if (config.getMaxRequestsPerHost() > 0 || !config.getMinHostDelay().isZero()) {
+      // The default crawlers fan out without a HostScheduler, so they would ignore the limits.
+      return POLITE_IMPLEMENTATIONS
+          .stream()
+          .flatMap(type -> implementations.stream().filter(type::isInstance))
+          .filter(impl -> targetParallelism <= impl.getMaxParallelism())
+          .findFirst()
+          .orElseThrow(
+              () -> new ProvisionException(
+                  "Per-host limits are only honored by " + POLITE_IMPLEMENTATIONS +
+                      ", and none of them can handle parallelism = \"" +
+                      config.getParallelism() + "\"."));
+    }
     return implementations
         .stream()
         .filter(impl -> targetParallelism <= impl.getMaxParallelism())
@@ -98,6 +128,26 @@ public final class WebCrawlerModule extends AbstractModule {
     return Runtime.getRuntime().availableProcessors();
   }
 
+  /**
+   * Provides a new, empty {@link VisitedUrls} set. Not a singleton: each crawl needs its own set.
+   */
+  @Provides
+  VisitedUrls provideVisitedUrls() {
+    if (config.isProbabilisticVisitedUrls()) {
+      return new BloomFilterVisitedUrls(
+          config.getExpectedUrlCount(), config.getVisitedUrlFalsePositiveRate());
+    }
+    return new FingerprintVisitedUrls(config.isVisitedUrlsOffHeap());
+  }
+
+  /**
+   * Provides a new {@link HostScheduler}. Not a singleton: each crawl needs its own scheduler.
+   */
+  @Provides
+  HostScheduler provideHostScheduler() {
+    return new HostScheduler(config.getMaxRequestsPerHost(), config.getMinHostDelay());
+  }
+
   @Provides
   @Singleton
   WebCrawler provideWebCrawlerProxy(Profiler wrapper, @Internal WebCrawler delegate) {
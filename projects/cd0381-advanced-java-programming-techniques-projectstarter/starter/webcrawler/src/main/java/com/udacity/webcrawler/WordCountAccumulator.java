@@ -0,0 +1,59 @@
+package com.udacity.webcrawler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe running total of word counts, shared by all the threads of a crawl.
+ *
+ * <p>Each word has its own {@link LongAdder}, so once a word has been seen, adding to its count
+ * never locks a {@link ConcurrentHashMap} bin. Very frequent words like "the" are added to by
+ * every page, and a {@link LongAdder} spreads those updates over several cells instead of making
+ * every thread fight over one.
+ */
+final class WordCountAccumulator {
+  private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+  /**
+   * Adds {@code count} occurrences of the given word.
+   */
+  void add(String word, int count) {
+    LongAdder adder = counts.get(word);
+    if (adder == null) {
+      // Only the first occurrence of a word has to go through the locking path.
+      adder = counts.computeIfAbsent(word, k -> new LongAdder());
+    }
+    adder.add(count);
+  }
+
+  /**
+   * Returns true if no words have been added.
+   */
+  boolean isEmpty() {
+    return counts.isEmpty();
+  }
+
+  /**
+   * Returns the top {@code popularWordCount} words and their current totals, in the order of
+   * {@link WordCounts#sort(Map, int)}. Totals too large for an {@code int} are capped at
+   * {@link Integer#MAX_VALUE}.
+   *
+   * <p>This does not copy every word into a new map, so it is cheap enough to call while words are
+   * still being added, and on the final totals of a large crawl. Words added concurrently may or
+   * may not be included.
+   */
+  Map<String, Integer> top(int popularWordCount) {
+    Stream<Map.Entry<String, LongAdder>> entries =
+        (counts.size() >= WordCounts.PARALLEL_THRESHOLD)
+            ? counts.entrySet().parallelStream()
+            : counts.entrySet().stream();
+    return WordCounts.top(
+        entries.map(e -> Map.entry(e.getKey(), toInt(e.getValue().sum()))), popularWordCount);
+  }
+
+  private static int toInt(long count) {
+    return (int) Math.min(count, Integer.MAX_VALUE);
+  }
+}
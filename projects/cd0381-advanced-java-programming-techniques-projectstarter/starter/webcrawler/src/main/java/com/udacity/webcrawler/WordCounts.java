@@ -3,8 +3,11 @@ package com.udacity.webcrawler;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Utility class that sorts the map of word counts.
@@ -14,6 +17,17 @@ import java.util.stream.Collectors;
  */
 final class WordCounts {
 
+  /**
+   * Maps smaller than this are selected from on the calling thread only.
+   */
+  static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /**
+   * The most room a heap of top word counts starts out with. Heaps grow as needed, so a large limit
+   * only costs memory when there are that many words.
+   */
+  private static final int MAX_INITIAL_HEAP_CAPACITY = 16;
+
   /**
    * Given an unsorted map of word counts, returns a new map whose word counts are sorted according
    * to the provided {@link WordCountComparator}, and includes only the top
@@ -27,14 +41,58 @@ final class WordCounts {
    * @return a map containing the top {@param popularWordCount} words and counts in the right order.
    */
   static Map<String, Integer> sort(Map<String, Integer> wordCounts, int popularWordCount) {
+    Stream<Map.Entry<String, Integer>> entries =
+        (wordCounts.size() >= PARALLEL_THRESHOLD)
+            ? wordCounts.entrySet().parallelStream()
+            : wordCounts.entrySet().stream();
+    return entries.collect(topWordCounts(popularWordCount));
+  }
+
+  /**
+   * Returns the top {@code popularWordCount} of the given word counts, like
+   * {@link #sort(Map, int)}, but from a stream of entries instead of a map. This lets callers rank
+   * the words of a map they are still updating, without copying it first.
+   */
+  static Map<String, Integer> top(
+      Stream<Map.Entry<String, Integer>> wordCounts, int popularWordCount) {
+    return wordCounts.collect(topWordCounts(popularWordCount));
+  }
+
+  /**
+   * Returns a {@link Collector} that selects the {@code limit} highest ranked word counts according
+   * to the {@link WordCountComparator}, and collects them into a map in that order.
+   *
+   * <p>Instead of sorting every entry, the collector keeps the best {@code limit} entries seen so
+   * far in a bounded heap whose head is the lowest ranked of them, which takes
+   * O(n log(limit)) time instead of O(n log(n)). In a parallel stream, each segment fills its own
+   * heap, and the heaps are merged at the end.
+   */
+  private static Collector<Map.Entry<String, Integer>, ?, Map<String, Integer>> topWordCounts(
+      int limit) {
+    Comparator<Map.Entry<String, Integer>> order = new WordCountComparator();
+    BiConsumer<PriorityQueue<Map.Entry<String, Integer>>, Map.Entry<String, Integer>> offer =
+        (heap, entry) -> {
+          if (heap.size() < limit) {
+            heap.add(entry);
+          } else if (limit > 0 && order.compare(entry, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(entry);
+          }
+        };
 
-    // The linked hashmap will keep the order of insertion
-    return wordCounts.entrySet()
-        .stream()
-        .sorted(new WordCountComparator())
-        .limit(Math.min(popularWordCount, wordCounts.size()))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
-            (oldVal, newVal) -> oldVal, LinkedHashMap::new));
+    return Collector.of(
+        () -> new PriorityQueue<>(
+            Math.max(1, Math.min(limit, MAX_INITIAL_HEAP_CAPACITY)), order.reversed()),
+        offer,
+        (left, right) -> {
+          right.forEach(entry -> offer.accept(left, entry));
+          return left;
+        },
+        // The linked hashmap will keep the order of insertion
+        heap -> heap.stream()
+            .sorted(order)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                (oldVal, newVal) -> oldVal, LinkedHashMap::new)));
   }
 
   /**
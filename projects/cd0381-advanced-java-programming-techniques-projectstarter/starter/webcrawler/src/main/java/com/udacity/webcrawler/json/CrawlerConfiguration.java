@@ -1,8 +1,13 @@
 package com.udacity.webcrawler.json;
 
+import com.udacity.webcrawler.profiler.ProfilerDimension;
+
 import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -26,6 +31,22 @@ public final class CrawlerConfiguration {
   private final int popularWordCount;
   private final String profileOutputPath;
   private final String resultPath;
+  private final int fetchConcurrency;
+  private final boolean pipelinedParsing;
+  private final boolean visitedUrlsOffHeap;
+  private final boolean probabilisticVisitedUrls;
+  private final long expectedUrlCount;
+  private final double visitedUrlFalsePositiveRate;
+  private final int maxRequestsPerHost;
+  private final int minHostDelayMillis;
+  private final String pageCacheDirectory;
+  private final long resultCacheMaxWeight;
+  private final long resultCacheTtlMillis;
+  private final boolean streamingParsing;
+  private final boolean adaptiveConcurrency;
+  private final long progressIntervalMillis;
+  private final Set<ProfilerDimension> profilerDimensions;
+  private final int metricsPort;
 
   private CrawlerConfiguration(
       List<String> startPages,
@@ -37,7 +58,23 @@ public final class CrawlerConfiguration {
       Duration timeout,
       int popularWordCount,
       String profileOutputPath,
-      String resultPath) {
+      String resultPath,
+      int fetchConcurrency,
+      boolean pipelinedParsing,
+      boolean visitedUrlsOffHeap,
+      boolean probabilisticVisitedUrls,
+      long expectedUrlCount,
+      double visitedUrlFalsePositiveRate,
+      int maxRequestsPerHost,
+      int minHostDelayMillis,
+      String pageCacheDirectory,
+      long resultCacheMaxWeight,
+      long resultCacheTtlMillis,
+      boolean streamingParsing,
+      boolean adaptiveConcurrency,
+      long progressIntervalMillis,
+      Set<ProfilerDimension> profilerDimensions,
+      int metricsPort) {
     this.startPages = startPages;
     this.ignoredUrls = ignoredUrls;
     this.ignoredWords = ignoredWords;
@@ -48,6 +85,22 @@ public final class CrawlerConfiguration {
     this.popularWordCount = popularWordCount;
     this.profileOutputPath = profileOutputPath;
     this.resultPath = resultPath;
+    this.fetchConcurrency = fetchConcurrency;
+    this.pipelinedParsing = pipelinedParsing;
+    this.visitedUrlsOffHeap = visitedUrlsOffHeap;
+    this.probabilisticVisitedUrls = probabilisticVisitedUrls;
+    this.expectedUrlCount = expectedUrlCount;
+    this.visitedUrlFalsePositiveRate = visitedUrlFalsePositiveRate;
+    this.maxRequestsPerHost = maxRequestsPerHost;
+    this.minHostDelayMillis = minHostDelayMillis;
+    this.pageCacheDirectory = pageCacheDirectory;
+    this.resultCacheMaxWeight = resultCacheMaxWeight;
+    this.resultCacheTtlMillis = resultCacheTtlMillis;
+    this.streamingParsing = streamingParsing;
+    this.adaptiveConcurrency = adaptiveConcurrency;
+    this.progressIntervalMillis = progressIntervalMillis;
+    this.profilerDimensions = profilerDimensions;
+    this.metricsPort = metricsPort;
   }
 
   /**
@@ -160,6 +213,16 @@ public final class CrawlerConfiguration {
     return profileOutputPath;
   }
 
+  /**
+   * An unmodifiable {@link Set} of the breakdowns that the profiler should write along with the
+   * method timings, such as the time spent by each thread. See {@link ProfilerDimension}.
+   *
+   * <p>The breakdowns cost a little more per profiled call, so by default there are none.
+   */
+  public Set<ProfilerDimension> getProfilerDimensions() {
+    return profilerDimensions;
+  }
+
   /**
    * Path to the output file where the result data from this web crawl should be written.
    *
@@ -173,6 +236,179 @@ public final class CrawlerConfiguration {
     return resultPath;
   }
 
+  /**
+   * The maximum number of pages that may be downloading at the same time. This setting is
+   * optional.
+   *
+   * <p>This is only used by crawlers that run downloads independently of the number of CPU cores,
+   * such as {@code "com.udacity.webcrawler.VirtualThreadWebCrawler"}, and as the upper bound of
+   * {@link #isAdaptiveConcurrency()}.
+   */
+  public int getFetchConcurrency() {
+    return fetchConcurrency;
+  }
+
+  /**
+   * Whether pages should be downloaded and parsed by separate pipeline stages. This setting is
+   * optional, and is accepted by every crawler implementation.
+   *
+   * <p>If set, downloads run on {@link #getFetchConcurrency()} I/O threads and hand the raw pages
+   * through a bounded buffer to a parse stage with one thread per CPU core. The crawler still waits
+   * for each page it parses, so downloads and parsing only overlap as far as the crawler parses
+   * several pages at once: the {@code "SequentialWebCrawler"} gets no overlap, and is slightly
+   * slower with this setting.
+   */
+  public boolean isPipelinedParsing() {
+    return pipelinedParsing;
+  }
+
+  /**
+   * Whether the set of visited URLs should be stored outside of the Java heap. This setting is
+   * optional.
+   *
+   * <p>Visited URLs are stored as 64-bit fingerprints either way. Storing them off-heap keeps a
+   * crawl of tens of millions of URLs from growing the heap, at the cost of memory that is not
+   * limited by {@code -Xmx}.
+   */
+  public boolean isVisitedUrlsOffHeap() {
+    return visitedUrlsOffHeap;
+  }
+
+  /**
+   * Whether visited URLs should be tracked by a Bloom filter instead of an exact set. This setting
+   * is optional.
+   *
+   * <p>A Bloom filter takes a fixed amount of memory, sized from {@link #getExpectedUrlCount()} and
+   * {@link #getVisitedUrlFalsePositiveRate()}, no matter how many URLs are visited. In exchange,
+   * a small fraction of the URLs will wrongly be treated as already visited and will not be
+   * crawled.
+   */
+  public boolean isProbabilisticVisitedUrls() {
+    return probabilisticVisitedUrls;
+  }
+
+  /**
+   * The number of distinct URLs a crawl is expected to visit. This setting is optional, and is
+   * only used if {@link #isProbabilisticVisitedUrls()} is set.
+   *
+   * <p>If a crawl visits more URLs than this, the false positive rate of the Bloom filter grows
+   * beyond {@link #getVisitedUrlFalsePositiveRate()}.
+   */
+  public long getExpectedUrlCount() {
+    return expectedUrlCount;
+  }
+
+  /**
+   * The fraction of new URLs that the Bloom filter may wrongly report as already visited. This
+   * setting is optional, and is only used if {@link #isProbabilisticVisitedUrls()} is set.
+   */
+  public double getVisitedUrlFalsePositiveRate() {
+    return visitedUrlFalsePositiveRate;
+  }
+
+  /**
+   * The maximum number of requests that may be in flight to the same host at once, or 0 for no
+   * limit. This setting is optional.
+   *
+   * <p>This is used by crawlers that schedule whole depth levels at a time, such as
+   * {@code "com.udacity.webcrawler.FrontierWebCrawler"} and
+   * {@code "com.udacity.webcrawler.VirtualThreadWebCrawler"}. While a host is at its limit, its
+   * URLs wait and other hosts are crawled instead.
+   *
+   * <p>If this or {@link #getMinHostDelay()} is set and there is no
+   * {@link #getImplementationOverride()}, the {@code "FrontierWebCrawler"} is used, since the other
+   * default crawlers would ignore the limits.
+   */
+  public int getMaxRequestsPerHost() {
+    return maxRequestsPerHost;
+  }
+
+  /**
+   * The minimum time between the starts of two requests to the same host. This setting is
+   * optional, and is used by the same crawlers as {@link #getMaxRequestsPerHost()}.
+   */
+  public Duration getMinHostDelay() {
+    return Duration.ofMillis(minHostDelayMillis);
+  }
+
+  /**
+   * Path to a directory where downloaded pages are cached between crawls.
+   *
+   * <p>For every page, the cache stores the parse result together with the page's {@code ETag} and
+   * {@code Last-Modified} validators. When the page is crawled again, it is requested with a
+   * conditional GET, and if the server answers {@code 304 Not Modified} the cached result is used
+   * instead of downloading and parsing the page again.
+   *
+   * <p>If the path is empty, pages are not cached.
+   */
+  public String getPageCacheDirectory() {
+    return pageCacheDirectory;
+  }
+
+  /**
+   * The maximum total weight of the in-memory parse result cache, or 0 if the cache is turned off.
+   *
+   * <p>When the same crawler is used for many crawls in one process, pages that were already
+   * parsed are served from this cache instead of being downloaded and parsed again. A cached page
+   * weighs one plus the number of distinct words and links on it. When the cache is full, the least
+   * recently used pages are evicted.
+   */
+  public long getResultCacheMaxWeight() {
+    return resultCacheMaxWeight;
+  }
+
+  /**
+   * How long a page stays in the in-memory parse result cache after it was parsed. This setting is
+   * optional, and defaults to keeping pages until they are evicted.
+   *
+   * <p>See {@link #getResultCacheMaxWeight()}.
+   */
+  public Duration getResultCacheTtl() {
+    return Duration.ofMillis(resultCacheTtlMillis);
+  }
+
+  /**
+   * Whether pages should be scanned in a single streaming pass, instead of being parsed into a full
+   * document tree. This setting is optional, and works with every crawler implementation.
+   *
+   * <p>Streaming uses far less memory and CPU on large pages, and finds the same words and links on
+   * well-formed pages.
+   */
+  public boolean isStreamingParsing() {
+    return streamingParsing;
+  }
+
+  /**
+   * Whether the {@code "com.udacity.webcrawler.ParallelWebCrawler"} should adapt the number of
+   * pages it downloads at the same time while it crawls. This setting is optional.
+   *
+   * <p>The crawler starts with one download per thread, then grows the number of downloads while
+   * they stay fast and there is work waiting for them, and shrinks it when downloads slow down. It
+   * never runs more than {@link #getFetchConcurrency()} downloads at once, or grows while the CPU
+   * is saturated.
+   */
+  public boolean isAdaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  /**
+   * How often a crawl started with a {@link com.udacity.webcrawler.CrawlListener} reports its
+   * progress to the listener. This setting is optional, and defaults to one second.
+   */
+  public Duration getProgressInterval() {
+    return Duration.ofMillis(progressIntervalMillis);
+  }
+
+  /**
+   * The local port of an HTTP endpoint that serves the profile data and the progress of the crawl
+   * while it runs, at {@code /metrics}. The endpoint only listens on the loopback address.
+   *
+   * <p>This setting is optional, and defaults to 0, which means no endpoint is started.
+   */
+  public int getMetricsPort() {
+    return metricsPort;
+  }
+
   /**
    * A builder class to create {@link CrawlerConfiguration} instances.
    */
@@ -187,6 +423,22 @@ public final class CrawlerConfiguration {
     private int popularWordCount = 0;
     private String profileOutputPath = "";
     private String resultPath = "";
+    private int fetchConcurrency = 64;
+    private boolean pipelinedParsing = false;
+    private boolean visitedUrlsOffHeap = false;
+    private boolean probabilisticVisitedUrls = false;
+    private long expectedUrlCount = 1_000_000;
+    private double visitedUrlFalsePositiveRate = 0.01;
+    private int maxRequestsPerHost = 0;
+    private int minHostDelayMillis = 0;
+    private String pageCacheDirectory = "";
+    private long resultCacheMaxWeight = 0;
+    private long resultCacheTtlMillis = 0;
+    private boolean streamingParsing = false;
+    private boolean adaptiveConcurrency = false;
+    private long progressIntervalMillis = 1000;
+    private final Set<String> profilerDimensions = new LinkedHashSet<>();
+    private int metricsPort = 0;
 
     /**
      * Adds a start page URL.
@@ -302,6 +554,20 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Adds breakdowns that the profiler should write, by the names of their
+     * {@link ProfilerDimension}s, such as {@code "thread"}. Names are not case sensitive.
+     *
+     * <p>See {@link #getProfilerDimensions()}.
+     */
+    @JsonProperty("profilerDimensions")
+    public Builder addProfilerDimensions(String... dimensions) {
+      for (String dimension : dimensions) {
+        profilerDimensions.add(Objects.requireNonNull(dimension));
+      }
+      return this;
+    }
+
     /**
      * Sets the path to the file where the result of this crawl should be written.
      *
@@ -313,6 +579,171 @@ public final class CrawlerConfiguration {
       return this;
     }
 
+    /**
+     * Sets the maximum number of pages that may be downloading at the same time.
+     *
+     * <p>See {@link #getFetchConcurrency()}.
+     */
+    @JsonProperty("fetchConcurrency")
+    public Builder setFetchConcurrency(int fetchConcurrency) {
+      this.fetchConcurrency = fetchConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets whether pages should be downloaded and parsed by separate pipeline stages.
+     *
+     * <p>See {@link #isPipelinedParsing()}.
+     */
+    @JsonProperty("pipelinedParsing")
+    public Builder setPipelinedParsing(boolean pipelinedParsing) {
+      this.pipelinedParsing = pipelinedParsing;
+      return this;
+    }
+
+    /**
+     * Sets whether the set of visited URLs should be stored outside of the Java heap.
+     *
+     * <p>See {@link #isVisitedUrlsOffHeap()}.
+     */
+    @JsonProperty("visitedUrlsOffHeap")
+    public Builder setVisitedUrlsOffHeap(boolean visitedUrlsOffHeap) {
+      this.visitedUrlsOffHeap = visitedUrlsOffHeap;
+      return this;
+    }
+
+    /**
+     * Sets whether visited URLs should be tracked by a Bloom filter instead of an exact set.
+     *
+     * <p>See {@link #isProbabilisticVisitedUrls()}.
+     */
+    @JsonProperty("probabilisticVisitedUrls")
+    public Builder setProbabilisticVisitedUrls(boolean probabilisticVisitedUrls) {
+      this.probabilisticVisitedUrls = probabilisticVisitedUrls;
+      return this;
+    }
+
+    /**
+     * Sets the number of distinct URLs a crawl is expected to visit.
+     *
+     * <p>See {@link #getExpectedUrlCount()}.
+     */
+    @JsonProperty("expectedUrlCount")
+    public Builder setExpectedUrlCount(long expectedUrlCount) {
+      this.expectedUrlCount = expectedUrlCount;
+      return this;
+    }
+
+    /**
+     * Sets the fraction of new URLs that may wrongly be reported as already visited.
+     *
+     * <p>See {@link #getVisitedUrlFalsePositiveRate()}.
+     */
+    @JsonProperty("visitedUrlFalsePositiveRate")
+    public Builder setVisitedUrlFalsePositiveRate(double visitedUrlFalsePositiveRate) {
+      this.visitedUrlFalsePositiveRate = visitedUrlFalsePositiveRate;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that may be in flight to the same host at once.
+     *
+     * <p>See {@link #getMaxRequestsPerHost()}.
+     */
+    @JsonProperty("maxRequestsPerHost")
+    public Builder setMaxRequestsPerHost(int maxRequestsPerHost) {
+      this.maxRequestsPerHost = maxRequestsPerHost;
+      return this;
+    }
+
+    /**
+     * Sets the minimum number of milliseconds between the starts of two requests to the same host.
+     *
+     * <p>See {@link #getMinHostDelay()}.
+     */
+    @JsonProperty("minHostDelayMillis")
+    public Builder setMinHostDelayMillis(int minHostDelayMillis) {
+      this.minHostDelayMillis = minHostDelayMillis;
+      return this;
+    }
+
+    /**
+     * Sets the directory where downloaded pages are cached between crawls.
+     *
+     * <p>See {@link #getPageCacheDirectory()}.
+     */
+    @JsonProperty("pageCacheDirectory")
+    public Builder setPageCacheDirectory(String pageCacheDirectory) {
+      this.pageCacheDirectory = Objects.requireNonNull(pageCacheDirectory);
+      return this;
+    }
+
+    /**
+     * Sets the maximum total weight of the in-memory parse result cache.
+     *
+     * <p>See {@link #getResultCacheMaxWeight()}.
+     */
+    @JsonProperty("resultCacheMaxWeight")
+    public Builder setResultCacheMaxWeight(long resultCacheMaxWeight) {
+      this.resultCacheMaxWeight = resultCacheMaxWeight;
+      return this;
+    }
+
+    /**
+     * Sets the number of milliseconds a page stays in the in-memory parse result cache.
+     *
+     * <p>See {@link #getResultCacheTtl()}.
+     */
+    @JsonProperty("resultCacheTtlMillis")
+    public Builder setResultCacheTtlMillis(long resultCacheTtlMillis) {
+      this.resultCacheTtlMillis = resultCacheTtlMillis;
+      return this;
+    }
+
+    /**
+     * Sets whether pages should be scanned in a single streaming pass.
+     *
+     * <p>See {@link #isStreamingParsing()}.
+     */
+    @JsonProperty("streamingParsing")
+    public Builder setStreamingParsing(boolean streamingParsing) {
+      this.streamingParsing = streamingParsing;
+      return this;
+    }
+
+    /**
+     * Sets whether the parallel crawler should adapt the number of concurrent downloads.
+     *
+     * <p>See {@link #isAdaptiveConcurrency()}.
+     */
+    @JsonProperty("adaptiveConcurrency")
+    public Builder setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+      this.adaptiveConcurrency = adaptiveConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets how often, in milliseconds, a crawl reports its progress to its listener.
+     *
+     * <p>See {@link #getProgressInterval()}.
+     */
+    @JsonProperty("progressIntervalMillis")
+    public Builder setProgressIntervalMillis(long progressIntervalMillis) {
+      this.progressIntervalMillis = progressIntervalMillis;
+      return this;
+    }
+
+    /**
+     * Sets the local port of the metrics endpoint, or 0 to not start one.
+     *
+     * <p>See {@link #getMetricsPort()}.
+     */
+    @JsonProperty("metricsPort")
+    public Builder setMetricsPort(int metricsPort) {
+      this.metricsPort = metricsPort;
+      return this;
+    }
+
     /**
      * Constructs a {@link CrawlerConfiguration} from this builder.
      */
@@ -326,6 +757,41 @@ public final class CrawlerConfiguration {
       if (popularWordCount < 0) {
         throw new IllegalArgumentException("popularWordCount cannot be negative");
       }
+      if (fetchConcurrency <= 0) {
+        throw new IllegalArgumentException("fetchConcurrency must be positive");
+      }
+      if (expectedUrlCount <= 0) {
+        throw new IllegalArgumentException("expectedUrlCount must be positive");
+      }
+      if (!(visitedUrlFalsePositiveRate > 0 && visitedUrlFalsePositiveRate < 1)) {
+        throw new IllegalArgumentException("visitedUrlFalsePositiveRate must be between 0 and 1");
+      }
+      if (maxRequestsPerHost < 0) {
+        throw new IllegalArgumentException("maxRequestsPerHost cannot be negative");
+      }
+      if (minHostDelayMillis < 0) {
+        throw new IllegalArgumentException("minHostDelayMillis cannot be negative");
+      }
+      if (resultCacheMaxWeight < 0) {
+        throw new IllegalArgumentException("resultCacheMaxWeight cannot be negative");
+      }
+      if (resultCacheTtlMillis < 0) {
+        throw new IllegalArgumentException("resultCacheTtlMillis cannot be negative");
+      }
+      if (progressIntervalMillis <= 0) {
+        throw new IllegalArgumentException("progressIntervalMillis must be positive");
+      }
+      if (metricsPort < 0 || metricsPort > 65535) {
+        throw new IllegalArgumentException("metricsPort must be between 0 and 65535");
+      }
+      Set<ProfilerDimension> dimensions = EnumSet.noneOf(ProfilerDimension.class);
+      for (String dimension : profilerDimensions) {
+        try {
+          dimensions.add(ProfilerDimension.valueOf(dimension.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Unknown profiler dimension: " + dimension, e);
+        }
+      }
 
       return new CrawlerConfiguration(
           startPages.stream().collect(Collectors.toUnmodifiableList()),
@@ -337,7 +803,23 @@ public final class CrawlerConfiguration {
           Duration.ofSeconds(timeoutSeconds),
           popularWordCount,
           profileOutputPath,
-          resultPath);
+          resultPath,
+          fetchConcurrency,
+          pipelinedParsing,
+          visitedUrlsOffHeap,
+          probabilisticVisitedUrls,
+          expectedUrlCount,
+          visitedUrlFalsePositiveRate,
+          maxRequestsPerHost,
+          minHostDelayMillis,
+          pageCacheDirectory,
+          resultCacheMaxWeight,
+          resultCacheTtlMillis,
+          streamingParsing,
+          adaptiveConcurrency,
+          progressIntervalMillis,
+          Collections.unmodifiableSet(dimensions),
+          metricsPort);
     }
   }
 }
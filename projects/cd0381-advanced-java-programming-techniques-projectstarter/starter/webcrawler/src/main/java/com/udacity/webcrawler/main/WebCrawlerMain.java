@@ -1,6 +1,7 @@
 package com.udacity.webcrawler.main;
 
 import com.google.inject.Guice;
+import com.udacity.webcrawler.MetricsServer;
 import com.udacity.webcrawler.WebCrawler;
 import com.udacity.webcrawler.WebCrawlerModule;
 import com.udacity.webcrawler.json.ConfigurationLoader;
@@ -30,9 +31,19 @@ public final class WebCrawlerMain {
   private Profiler profiler;
 
   private void run() throws Exception {
-    Guice.createInjector(new WebCrawlerModule(config), new ProfilerModule()).injectMembers(this);
+    Guice.createInjector(
+        new WebCrawlerModule(config),
+        new ProfilerModule(config.getProfilerDimensions()))
+        .injectMembers(this);
 
-    CrawlResult result = crawler.crawl(config.getStartPages());
+    CrawlResult result;
+    if (config.getMetricsPort() != 0) {
+      try (MetricsServer metrics = MetricsServer.start(profiler, config.getMetricsPort())) {
+        result = crawler.crawl(config.getStartPages(), metrics);
+      }
+    } else {
+      result = crawler.crawl(config.getStartPages());
+    }
     CrawlResultWriter resultWriter = new CrawlResultWriter(result);
 
     if (!config.getResultPath().isEmpty())
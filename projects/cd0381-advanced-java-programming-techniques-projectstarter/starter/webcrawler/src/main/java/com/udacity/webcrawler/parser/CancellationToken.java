@@ -0,0 +1,202 @@
+package com.udacity.webcrawler.parser;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tells the tasks of a crawl when to give up, because its deadline passed or it was cancelled.
+ *
+ * <p>A token is shared by every task of a single crawl. Tasks that have not started yet check
+ * {@link #isCancelled()} and skip their work. Downloads that are already in flight register a
+ * callback with {@link #onCancel(Runnable)}, which aborts them as soon as the token is cancelled,
+ * and are never given a timeout that reaches past the deadline.
+ *
+ * <p>Once a callback is registered, the token cancels itself when the deadline passes, even if no
+ * thread is checking it at the time. A token can also be cancelled early with {@link #cancel()},
+ * for example by a crawler that stops waiting for its tasks.
+ *
+ * <p>This class is thread-safe.
+ */
+public final class CancellationToken {
+
+  /**
+   * A token that is never cancelled, for parsers that are not part of a crawl.
+   */
+  public static final CancellationToken NONE =
+      new CancellationToken(Clock.systemUTC(), Instant.MAX);
+
+  /**
+   * The shortest timeout passed to a download, so that a download started just before the deadline
+   * is not given a timeout of zero, which means no timeout at all.
+   */
+  private static final Duration MIN_TIMEOUT = Duration.ofMillis(1);
+
+  private final Clock clock;
+  private final Instant deadline;
+  private final Set<Runnable> callbacks = new LinkedHashSet<>();
+  private ScheduledFuture<?> timer;
+  private volatile boolean cancelled;
+
+  private CancellationToken(Clock clock, Instant deadline) {
+    this.clock = Objects.requireNonNull(clock);
+    this.deadline = Objects.requireNonNull(deadline);
+  }
+
+  /**
+   * Returns a new token that is cancelled once the given clock passes the given deadline.
+   */
+  public static CancellationToken withDeadline(Clock clock, Instant deadline) {
+    return new CancellationToken(clock, deadline);
+  }
+
+  /**
+   * Returns true if the token was cancelled, or its deadline has passed.
+   */
+  public boolean isCancelled() {
+    if (!cancelled && clock.instant().isAfter(deadline)) {
+      cancel();
+    }
+    return cancelled;
+  }
+
+  /**
+   * Returns the time left until the deadline, or {@link Duration#ZERO} if it has passed or the
+   * token was cancelled.
+   */
+  public Duration remaining() {
+    if (isCancelled()) {
+      return Duration.ZERO;
+    }
+    Duration remaining = Duration.between(clock.instant(), deadline);
+    return remaining.isNegative() ? Duration.ZERO : remaining;
+  }
+
+  /**
+   * Cancels the token, and runs every callback registered with {@link #onCancel(Runnable)}. Does
+   * nothing if the token was already cancelled.
+   */
+  public void cancel() {
+    if (this == NONE) {
+      throw new UnsupportedOperationException("CancellationToken.NONE cannot be cancelled");
+    }
+    List<Runnable> toRun;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      toRun = new ArrayList<>(callbacks);
+      callbacks.clear();
+      if (timer != null) {
+        timer.cancel(false);
+        timer = null;
+      }
+    }
+    toRun.forEach(Runnable::run);
+  }
+
+  /**
+   * Waits for the given task to finish, but not past the deadline. If the deadline passes first,
+   * the token is cancelled and the task is left to wind down on its own.
+   *
+   * @return true if the task finished, false if the deadline passed first.
+   * @throws ExecutionException if the task failed.
+   */
+  public boolean await(Future<?> task) throws InterruptedException, ExecutionException {
+    try {
+      task.get(TimeUnit.NANOSECONDS.convert(remaining()), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      cancel();
+      return false;
+    }
+  }
+
+  /**
+   * Registers a callback that is run when the token is cancelled, on the cancelling thread. If the
+   * token is already cancelled, the callback is run right away.
+   *
+   * @return a registration that must be closed once the callback is no longer needed.
+   */
+  public Registration onCancel(Runnable callback) {
+    Objects.requireNonNull(callback);
+    synchronized (this) {
+      if (!cancelled && this != NONE) {
+        callbacks.add(callback);
+        if (timer == null) {
+          long delay = TimeUnit.NANOSECONDS.convert(Duration.between(clock.instant(), deadline));
+          timer = Timer.INSTANCE.schedule(this::cancel, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+        return () -> {
+          synchronized (this) {
+            callbacks.remove(callback);
+          }
+        };
+      }
+    }
+    if (cancelled) {
+      callback.run();
+    }
+    return () -> {
+    };
+  }
+
+  /**
+   * Returns the given download timeout, shortened so that it does not reach past the deadline.
+   *
+   * @param timeout the download timeout, or {@link Duration#ZERO} for no timeout.
+   */
+  Duration limit(Duration timeout) {
+    if (this == NONE) {
+      return timeout;
+    }
+    Duration remaining = remaining();
+    if (remaining.compareTo(MIN_TIMEOUT) < 0) {
+      remaining = MIN_TIMEOUT;
+    }
+    return (timeout.isZero() || remaining.compareTo(timeout) < 0) ? remaining : timeout;
+  }
+
+  /**
+   * A callback registered with {@link #onCancel(Runnable)}.
+   */
+  public interface Registration extends AutoCloseable {
+
+    /**
+     * Unregisters the callback, so that it is not run if the token is cancelled later.
+     */
+    @Override
+    void close();
+  }
+
+  /**
+   * Holds the thread that cancels tokens when their deadline passes. Created on first use, since
+   * most tokens never need it.
+   */
+  private static final class Timer {
+    static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+    private static ScheduledThreadPoolExecutor create() {
+      ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "crawl-deadline");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // Crawls that finish early cancel their timers, which should not linger in the queue.
+      executor.setRemoveOnCancelPolicy(true);
+      return executor;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.udacity.webcrawler.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The raw, not yet parsed contents of a downloaded HTML page.
+ *
+ * <p>This is what the download stage of a {@link StagedPageParser} hands to its parse stage.
+ *
+ * <p>If the page was requested with a conditional GET and has not changed, there is no body.
+ * Instead, {@link #isNotModified()} is true, and the parse stage should reuse its cached result.
+ *
+ * <p>The body is usually a heap buffer, but large local files are memory-mapped instead, so their
+ * bytes are only paged in as they are read.
+ */
+public final class FetchedPage {
+  private final URI uri;
+  private final ByteBuffer body;
+  private final String charset;
+  private final String baseUri;
+  private final String etag;
+  private final String lastModified;
+  private final boolean notModified;
+
+  /**
+   * Creates a {@link FetchedPage}.
+   *
+   * @param uri     the URI the page was requested from.
+   * @param body    the bytes of the page.
+   * @param charset the name of the charset of the page, or {@code null} if it should be detected
+   *                from the page itself.
+   * @param baseUri the URI used to resolve relative links, or an empty string if relative links
+   *                should be left unresolved.
+   */
+  FetchedPage(URI uri, byte[] body, String charset, String baseUri) {
+    this(uri, body, charset, baseUri, null, null);
+  }
+
+  /**
+   * Creates a {@link FetchedPage} with the validators the server sent for it.
+   *
+   * @param etag         the {@code ETag} of the page, or {@code null} if there is none.
+   * @param lastModified the {@code Last-Modified} date of the page, or {@code null} if there is
+   *                     none.
+   */
+  FetchedPage(
+      URI uri, byte[] body, String charset, String baseUri, String etag, String lastModified) {
+    this(uri, ByteBuffer.wrap(body), charset, baseUri, etag, lastModified, false);
+  }
+
+  /**
+   * Creates a {@link FetchedPage} whose bytes are the remaining bytes of the given buffer, which
+   * may be a memory-mapped file.
+   */
+  FetchedPage(
+      URI uri, ByteBuffer body, String charset, String baseUri, String etag, String lastModified) {
+    this(uri, body, charset, baseUri, etag, lastModified, false);
+  }
+
+  private FetchedPage(
+      URI uri,
+      ByteBuffer body,
+      String charset,
+      String baseUri,
+      String etag,
+      String lastModified,
+      boolean notModified) {
+    this.uri = Objects.requireNonNull(uri);
+    this.body = Objects.requireNonNull(body);
+    this.charset = charset;
+    this.baseUri = Objects.requireNonNull(baseUri);
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.notModified = notModified;
+  }
+
+  /**
+   * Returns a {@link FetchedPage} for a page that has not changed since the given validators were
+   * received.
+   */
+  static FetchedPage notModified(URI uri, String etag, String lastModified) {
+    return new FetchedPage(
+        uri, ByteBuffer.allocate(0), null, "", etag, lastModified, true);
+  }
+
+  /**
+   * Returns the URI the page was requested from.
+   */
+  public URI getUri() {
+    return uri;
+  }
+
+  /**
+   * Returns a new {@link InputStream} over the bytes of the page.
+   */
+  public InputStream openStream() {
+    if (body.hasArray()) {
+      return new ByteArrayInputStream(
+          body.array(), body.arrayOffset() + body.position(), body.remaining());
+    }
+    return new ByteBufferInputStream(body.duplicate());
+  }
+
+  /**
+   * Returns a new read-only {@link ByteBuffer} over the bytes of the page.
+   */
+  public ByteBuffer getBody() {
+    return body.asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the name of the charset of the page, or {@code null} if it is unknown.
+   */
+  public String getCharset() {
+    return charset;
+  }
+
+  /**
+   * Returns the URI that relative links in the page are resolved against.
+   */
+  public String getBaseUri() {
+    return baseUri;
+  }
+
+  /**
+   * Returns the {@code ETag} of the page, or {@code null} if it is unknown.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Returns the {@code Last-Modified} date of the page, or {@code null} if it is unknown.
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * Returns true if the page was requested with a conditional GET and has not changed, in which
+   * case the page has no body.
+   */
+  public boolean isNotModified() {
+    return notModified;
+  }
+
+  /**
+   * An {@link InputStream} over the remaining bytes of a {@link ByteBuffer}.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
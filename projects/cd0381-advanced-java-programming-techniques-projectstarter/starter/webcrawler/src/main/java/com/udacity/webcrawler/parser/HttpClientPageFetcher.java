@@ -0,0 +1,258 @@
+package com.udacity.webcrawler.parser;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link PageFetcher} that downloads remote pages with a single, shared {@link HttpClient}.
+ *
+ * <p>Sharing one client means connections are kept alive and reused between pages of the same
+ * host, so only the first page from a host pays for the TCP and TLS handshakes. The client prefers
+ * HTTP/2, which lets concurrent requests to a host share one connection, and asks for gzip or
+ * deflate compressed responses.
+ *
+ * <p>Like Jsoup's own downloader, this fetcher follows redirects, rejects error responses and
+ * non-HTML content types, and reads at most 2 MiB of each page.
+ *
+ * <p>Pages can be requested with a conditional GET, using the {@code ETag} and
+ * {@code Last-Modified} validators of an earlier copy. Local {@code file:} pages are read directly
+ * from disk, and large ones are memory-mapped.
+ *
+ * <p>A download in flight is abandoned as soon as its crawl's {@link CancellationToken} is
+ * cancelled, whether it is still waiting for the response or in the middle of reading the body.
+ * The client has no connect timeout of its own: connecting counts towards the timeout of each
+ * request, which is the page's download timeout.
+ */
+final class HttpClientPageFetcher implements PageFetcher {
+  private static final int MAX_BODY_SIZE = 2 * 1024 * 1024;
+
+  /**
+   * The size from which local files are memory-mapped.
+   */
+  private static final long MAP_THRESHOLD = 256 * 1024;
+
+  private final HttpClient client;
+
+  @Inject
+  HttpClientPageFetcher() {
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+  }
+
+  @Override
+  public FetchedPage fetch(
+      URI uri, Duration timeout, String etag, String lastModified, CancellationToken cancellation)
+      throws IOException {
+    if ("file".equals(uri.getScheme())) {
+      return fetchFile(uri, lastModified);
+    }
+
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(uri)
+            .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+            .header("Accept-Encoding", "gzip, deflate");
+    if (etag != null) {
+      request.header("If-None-Match", etag);
+    }
+    if (lastModified != null) {
+      request.header("If-Modified-Since", lastModified);
+    }
+    if (!timeout.isZero()) {
+      request.timeout(timeout);
+    }
+
+    HttpResponse<InputStream> response = send(uri, request.build(), cancellation);
+
+    // The request timeout only covers the wait for the response headers, so a server that stalls
+    // in the middle of the body is cut off by closing the body when the crawl is cancelled.
+    // The body is only decoded once the status says there is one: a 304, or an error response
+    // without a body, may still carry the Content-Encoding of the page it stands for.
+    try (CancellationToken.Registration closeBody =
+             cancellation.onCancel(() -> closeQuietly(response.body()));
+         InputStream raw = response.body()) {
+      if (response.statusCode() == 304 && (etag != null || lastModified != null)) {
+        // The server may send updated validators with a 304; keep the old ones if it does not.
+        return FetchedPage.notModified(
+            uri,
+            response.headers().firstValue("ETag").orElse(etag),
+            response.headers().firstValue("Last-Modified").orElse(lastModified));
+      }
+      if (response.statusCode() < 200 || response.statusCode() >= 300) {
+        throw new IOException("HTTP error " + response.statusCode() + " fetching " + uri);
+      }
+      Optional<String> contentType = response.headers().firstValue("Content-Type");
+      if (contentType.isPresent() && !isHtmlOrXml(contentType.get())) {
+        throw new IOException("Unsupported content type " + contentType.get() + " at " + uri);
+      }
+      byte[] bytes;
+      try (InputStream body = decode(raw, response)) {
+        bytes = body.readNBytes(MAX_BODY_SIZE);
+      }
+      if (cancellation.isCancelled()) {
+        // The body may have been cut short by the cancellation, so it cannot be trusted.
+        throw new IOException("Download of " + uri + " was cancelled");
+      }
+      return new FetchedPage(
+          uri,
+          bytes,
+          contentType.map(HttpClientPageFetcher::charsetOf).orElse(null),
+          response.uri().toString(),
+          response.headers().firstValue("ETag").orElse(null),
+          response.headers().firstValue("Last-Modified").orElse(null));
+    }
+  }
+
+  /**
+   * Sends the request and waits for the response headers, giving up if the crawl is cancelled
+   * first.
+   *
+   * <p>On Java 11, giving up does not close the underlying exchange, which runs on until the
+   * request timeout, but the calling thread is free to move on right away.
+   */
+  private HttpResponse<InputStream> send(
+      URI uri, HttpRequest request, CancellationToken cancellation) throws IOException {
+    CompletableFuture<HttpResponse<InputStream>> response =
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+    try (CancellationToken.Registration abort =
+             cancellation.onCancel(() -> response.cancel(true))) {
+      return response.get();
+    } catch (CancellationException e) {
+      throw new IOException("Download of " + uri + " was cancelled", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to download " + uri, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while downloading " + uri, e);
+    }
+  }
+
+  /**
+   * Reads a local file. The file's modification time stands in for a {@code Last-Modified} header,
+   * so local pages can be cached like remote ones.
+   *
+   * <p>Files of at least {@link #MAP_THRESHOLD} bytes are memory-mapped instead of copied onto the
+   * heap. Smaller files are cheaper to just read, since setting up a mapping costs a system call
+   * and a page fault per page of the file.
+   */
+  private static FetchedPage fetchFile(URI uri, String lastModified) throws IOException {
+    Path path = Path.of(uri);
+    String modified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+        Files.getLastModifiedTime(path).toInstant().atOffset(ZoneOffset.UTC));
+    if (modified.equals(lastModified)) {
+      return FetchedPage.notModified(uri, null, modified);
+    }
+
+    ByteBuffer body;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File is too large to parse: " + path);
+      }
+      if (size >= MAP_THRESHOLD) {
+        // The mapping stays valid after the channel is closed.
+        body = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        body = ByteBuffer.allocate((int) size);
+        while (body.hasRemaining() && channel.read(body) != -1) {
+          // Keep reading until the buffer is full, or the file shrank.
+        }
+        body.flip();
+      }
+    }
+    // Unfortunately, Jsoup.parse() has a baseUri parameter that does not work with local
+    // "file://" URIs. If we want the parser to support those URIs, which are very useful for
+    // testing, the work-around is to pass in an empty baseUri and manually add the base back to
+    // href attributes.
+    return new FetchedPage(uri, body, StandardCharsets.UTF_8.name(), "", null, modified);
+  }
+
+  private static void closeQuietly(InputStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      // The download is being abandoned, so there is nothing left to do with the error.
+    }
+  }
+
+  /**
+   * Returns the given response body, decompressed according to the response's
+   * {@code Content-Encoding}.
+   */
+  private static InputStream decode(InputStream body, HttpResponse<?> response)
+      throws IOException {
+    String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+    switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+      case "gzip":
+      case "x-gzip":
+        return new GZIPInputStream(body);
+      case "deflate":
+        return new InflaterInputStream(body);
+      default:
+        return body;
+    }
+  }
+
+  /**
+   * Returns true for the same content types Jsoup accepts: {@code text/*}, {@code application/xml}
+   * and {@code application/*+xml}.
+   */
+  private static boolean isHtmlOrXml(String contentType) {
+    String type = contentType.toLowerCase(Locale.ROOT);
+    int parameters = type.indexOf(';');
+    if (parameters >= 0) {
+      type = type.substring(0, parameters);
+    }
+    type = type.trim();
+    return type.startsWith("text/")
+        || type.equals("application/xml")
+        || (type.startsWith("application/") && type.endsWith("+xml"));
+  }
+
+  /**
+   * Returns the {@code charset} parameter of a {@code Content-Type} header, or null if there is
+   * none or it is not supported, in which case the parser detects the charset from the page itself.
+   */
+  private static String charsetOf(String contentType) {
+    for (String parameter : contentType.split(";")) {
+      String[] nameAndValue = parameter.trim().split("=", 2);
+      if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("charset")) {
+        String charset = nameAndValue[1].trim().replace("\"", "");
+        try {
+          return Charset.isSupported(charset) ? charset : null;
+        } catch (IllegalCharsetNameException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+}
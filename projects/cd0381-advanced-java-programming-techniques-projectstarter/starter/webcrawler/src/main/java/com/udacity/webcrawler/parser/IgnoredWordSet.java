@@ -0,0 +1,259 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * The ignored word patterns, compiled so that testing a word does not cost one regex match per
+ * pattern.
+ *
+ * <p>Patterns are sorted into three groups when the set is compiled:
+ *
+ * <ul>
+ *   <li>Patterns that only constrain the length of a word, like {@code "^.{1,3}$"} or
+ *       {@code "^...$"}, become a code point count.
+ *   <li>Patterns without any regex syntax become a sorted table of literal words.
+ *   <li>Every other pattern is merged into a single alternation, so the regex engine runs once per
+ *       word. Patterns that cannot safely be merged, such as ones with back-references, are kept
+ *       as they are.
+ * </ul>
+ *
+ * <p>A word is ignored if any of the original patterns {@link Matcher#matches() matches} it.
+ */
+final class IgnoredWordSet {
+
+  /**
+   * Matches patterns that only constrain the number of characters matched by {@code "."}.
+   */
+  private static final Pattern LENGTH_PATTERN =
+      Pattern.compile("\\^?(?:\\.\\{(\\d{1,9})(?:(,)(\\d{1,9})?)?}|(\\.+))\\$?");
+
+  /**
+   * Matches patterns that contain no regex syntax at all, except for optional anchors.
+   */
+  private static final Pattern LITERAL_PATTERN =
+      Pattern.compile("\\^?([^\\\\^$.|?*+()\\[\\]{}]*)\\$?");
+
+  /**
+   * Matches regex syntax that changes meaning when a pattern is placed inside an alternation:
+   * back-references and named groups.
+   */
+  private static final Pattern UNMERGEABLE_SYNTAX = Pattern.compile("\\\\[1-9k]|\\(\\?<[a-zA-Z]");
+
+  /**
+   * Flags that have an embedded {@code (?flags:...)} form.
+   */
+  private static final int EMBEDDABLE_FLAGS =
+      Pattern.UNIX_LINES | Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL
+          | Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS;
+  private static final int[] FLAGS = {
+      Pattern.UNIX_LINES, Pattern.CASE_INSENSITIVE, Pattern.MULTILINE, Pattern.DOTALL,
+      Pattern.UNICODE_CASE, Pattern.UNICODE_CHARACTER_CLASS};
+  private static final String FLAG_CHARACTERS = "dimsuU";
+
+  private final int[] lengthRanges;
+  private final String[] literals;
+  private final Pattern[] patterns;
+
+  private IgnoredWordSet(int[] lengthRanges, String[] literals, Pattern[] patterns) {
+    this.lengthRanges = lengthRanges;
+    this.literals = literals;
+    this.patterns = patterns;
+  }
+
+  /**
+   * Compiles the given ignored word patterns.
+   */
+  static IgnoredWordSet compile(List<Pattern> ignoredWords) {
+    List<Integer> lengthRanges = new ArrayList<>();
+    List<String> literals = new ArrayList<>();
+    List<Pattern> mergeable = new ArrayList<>();
+    List<Pattern> patterns = new ArrayList<>();
+
+    for (Pattern pattern : ignoredWords) {
+      Objects.requireNonNull(pattern);
+      Matcher length = LENGTH_PATTERN.matcher(pattern.pattern());
+      Matcher literal = LITERAL_PATTERN.matcher(pattern.pattern());
+      if (pattern.flags() == 0 && length.matches()) {
+        if (length.group(4) != null) {
+          lengthRanges.add(length.group(4).length());
+          lengthRanges.add(length.group(4).length());
+        } else {
+          int min = Integer.parseInt(length.group(1));
+          lengthRanges.add(min);
+          if (length.group(2) == null) {
+            lengthRanges.add(min);
+          } else if (length.group(3) == null) {
+            lengthRanges.add(Integer.MAX_VALUE);
+          } else {
+            lengthRanges.add(Integer.parseInt(length.group(3)));
+          }
+        }
+      } else if (pattern.flags() == Pattern.LITERAL) {
+        literals.add(pattern.pattern());
+      } else if (pattern.flags() == 0 && literal.matches()) {
+        literals.add(literal.group(1));
+      } else if ((pattern.flags() & ~EMBEDDABLE_FLAGS) == 0
+          && !UNMERGEABLE_SYNTAX.matcher(pattern.pattern()).find()) {
+        mergeable.add(pattern);
+      } else {
+        patterns.add(pattern);
+      }
+    }
+
+    if (mergeable.size() == 1) {
+      patterns.add(mergeable.get(0));
+    } else if (!mergeable.isEmpty()) {
+      String alternation =
+          mergeable.stream()
+              .map(p -> "(?" + embeddedFlags(p.flags()) + ":" + p.pattern() + ")")
+              .collect(Collectors.joining("|"));
+      try {
+        patterns.add(Pattern.compile(alternation));
+      } catch (PatternSyntaxException e) {
+        // A pattern that compiles on its own can still break the alternation, for example by
+        // ending with an unterminated comment. Fall back to matching them one by one.
+        patterns.addAll(mergeable);
+      }
+    }
+
+    String[] sortedLiterals = literals.stream().distinct().sorted().toArray(String[]::new);
+    return new IgnoredWordSet(
+        lengthRanges.stream().mapToInt(Integer::intValue).toArray(),
+        sortedLiterals,
+        patterns.toArray(new Pattern[0]));
+  }
+
+  /**
+   * Returns a new {@link WordMatcher} that tests words against this set. Like a {@link Matcher},
+   * it is not thread-safe.
+   */
+  WordMatcher newMatcher() {
+    return new WordMatcher();
+  }
+
+  /**
+   * Returns the embedded flag characters equivalent to the given {@link #EMBEDDABLE_FLAGS}.
+   */
+  private static String embeddedFlags(int flags) {
+    StringBuilder embedded = new StringBuilder();
+    for (int i = 0; i < FLAGS.length; i++) {
+      if ((flags & FLAGS[i]) != 0) {
+        embedded.append(FLAG_CHARACTERS.charAt(i));
+      }
+    }
+    return embedded.toString();
+  }
+
+  /**
+   * Tests regions of a piece of text against an {@link IgnoredWordSet}.
+   */
+  final class WordMatcher {
+    private final Matcher[] matchers;
+    private CharSequence text = "";
+
+    private WordMatcher() {
+      matchers = new Matcher[patterns.length];
+      for (int i = 0; i < matchers.length; i++) {
+        matchers[i] = patterns[i].matcher("");
+      }
+    }
+
+    /**
+     * Sets the text whose regions will be tested by {@link #matches(int, int)}.
+     */
+    void reset(CharSequence text) {
+      this.text = Objects.requireNonNull(text);
+      for (Matcher matcher : matchers) {
+        matcher.reset(text);
+      }
+    }
+
+    /**
+     * Returns true if the word {@code text[start, end)} is ignored.
+     */
+    boolean matches(int start, int end) {
+      if (lengthRanges.length > 0 && matchesLength(start, end)) {
+        return true;
+      }
+      if (literals.length > 0 && matchesLiteral(start, end)) {
+        return true;
+      }
+      for (Matcher matcher : matchers) {
+        // Anchoring, opaque bounds make the region behave exactly like a substring.
+        if (matcher.region(start, end).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean matchesLength(int start, int end) {
+      for (int i = start; i < end; i++) {
+        if (isLineTerminator(text.charAt(i))) {
+          // "." does not match line terminators, so no length pattern can match.
+          return false;
+        }
+      }
+      int length = Character.codePointCount(text, start, end);
+      for (int i = 0; i < lengthRanges.length; i += 2) {
+        if (length >= lengthRanges[i] && length <= lengthRanges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean matchesLiteral(int start, int end) {
+      int low = 0;
+      int high = literals.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = compare(literals[mid], start, end);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Compares {@code literal} to {@code text[start, end)} the same way {@link String#compareTo}
+     * would.
+     */
+    private int compare(String literal, int start, int end) {
+      int length = Math.min(literal.length(), end - start);
+      for (int i = 0; i < length; i++) {
+        int cmp = literal.charAt(i) - text.charAt(start + i);
+        if (cmp != 0) {
+          return cmp;
+        }
+      }
+      return literal.length() - (end - start);
+    }
+  }
+
+  /**
+   * Returns true if {@code c} is a line terminator, which is not matched by {@code "."}.
+   */
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  @Override
+  public String toString() {
+    return "IgnoredWordSet{lengthRanges=" + Arrays.toString(lengthRanges)
+        + ", literals=" + Arrays.toString(literals)
+        + ", patterns=" + Arrays.toString(patterns) + "}";
+  }
+}
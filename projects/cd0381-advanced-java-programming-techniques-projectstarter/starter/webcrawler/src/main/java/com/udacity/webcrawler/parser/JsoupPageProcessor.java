@@ -0,0 +1,61 @@
+package com.udacity.webcrawler.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Evaluator.Tag;
+import org.jsoup.select.NodeVisitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * A {@link PageProcessor} that parses the page into a Jsoup {@link Document}, and then walks the
+ * document tree.
+ */
+final class JsoupPageProcessor implements PageProcessor {
+
+  @Override
+  public void process(FetchedPage page, WordTokenizer tokenizer, PageParser.Result.Builder builder)
+      throws IOException {
+    URI parsedUri = page.getUri();
+    String basePath = PageProcessor.isLocalFile(parsedUri)
+        ? PageProcessor.localBasePath(parsedUri)
+        : null;
+    Document document;
+    try (InputStream in = page.openStream()) {
+      document = Jsoup.parse(in, page.getCharset(), page.getBaseUri());
+    }
+
+    // Do a single pass over the document to gather all hyperlinks and text.
+    document.traverse(new NodeVisitor() {
+      @Override
+      public void head(Node node, int depth) {
+        if (node instanceof TextNode) {
+          tokenizer.tokenize(((TextNode) node).text(), builder);
+          return;
+        }
+        if (!(node instanceof Element)) {
+          return;
+        }
+        Element element = (Element) node;
+        if (!element.is(new Tag("a")) || !element.hasAttr("href")) {
+          return;
+        }
+        if (basePath != null) {
+          builder.addLink(PageProcessor.resolveLocalLink(basePath, element.attr("href")));
+        } else {
+          // Otherwise, let Jsoup resolve the absolute URL for us.
+          builder.addLink(element.attr("abs:href"));
+        }
+      }
+
+      @Override
+      public void tail(Node node, int depth) {
+      }
+    });
+  }
+}
@@ -0,0 +1,189 @@
+package com.udacity.webcrawler.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An on-disk cache of parse {@link PageParser.Result}s, which lets repeated crawls skip pages that
+ * have not changed.
+ *
+ * <p>Each page's result is stored with the {@code ETag} and {@code Last-Modified} validators it was
+ * served with. On the next crawl, the page is requested with a conditional GET using those
+ * validators, and if the server answers {@code 304 Not Modified}, the stored result is used as is:
+ * the page is neither downloaded nor parsed again.
+ *
+ * <p>Every page is stored in its own gzip-compressed file, named after a SHA-256 hash of the URL
+ * and of the ignored word patterns. Since the stored result depends on those patterns, changing
+ * them starts a fresh cache instead of reusing stale word counts. Files are written to a temporary
+ * file and then moved into place, so concurrent crawls never see a partly written entry.
+ *
+ * <p>This class is thread-safe.
+ */
+final class PageCache {
+
+  /**
+   * A cache that never stores anything, for crawls that have caching turned off.
+   */
+  static final PageCache DISABLED = new PageCache(null, List.of());
+
+  private static final int MAGIC = 0x57435043;
+  private static final int VERSION = 1;
+
+  private final Path directory;
+  private final String keyPrefix;
+
+  /**
+   * Creates a cache that stores its entries in the given directory, which is created if it does
+   * not exist.
+   *
+   * @param directory    the cache directory.
+   * @param ignoredWords the ignored word patterns used by the parsers whose results are cached.
+   */
+  PageCache(Path directory, List<Pattern> ignoredWords) {
+    this.directory = directory;
+    StringBuilder prefix = new StringBuilder();
+    for (Pattern pattern : ignoredWords) {
+      prefix.append(pattern.flags()).append(':').append(pattern.pattern()).append('\n');
+    }
+    this.keyPrefix = prefix.append('\n').toString();
+  }
+
+  /**
+   * Returns the cached entry for the given URL, or {@code null} if there is none.
+   *
+   * <p>A cache entry that cannot be read, for example because it was written by an incompatible
+   * version of the crawler, is treated as missing.
+   */
+  Entry get(String url) {
+    if (directory == null) {
+      return null;
+    }
+    Path file = fileFor(url);
+    try (DataInputStream in =
+             new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(url)) {
+        return null;
+      }
+      String etag = readNullable(in);
+      String lastModified = readNullable(in);
+      PageParser.Result.Builder builder = new PageParser.Result.Builder();
+      for (int words = in.readInt(); words > 0; words--) {
+        builder.addWord(in.readUTF(), in.readInt());
+      }
+      for (int links = in.readInt(); links > 0; links--) {
+        builder.addLink(in.readUTF());
+      }
+      return new Entry(etag, lastModified, builder.build());
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Stores the result of parsing the given page. Pages without validators are not stored, since
+   * there would be no way to tell whether they changed.
+   */
+  void put(String url, FetchedPage page, PageParser.Result result) {
+    if (directory == null || (page.getEtag() == null && page.getLastModified() == null)) {
+      return;
+    }
+    Path file = fileFor(url);
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try {
+        try (DataOutputStream out =
+                 new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(temp)))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeUTF(url);
+          writeNullable(out, page.getEtag());
+          writeNullable(out, page.getLastModified());
+          out.writeInt(result.getWordCounts().size());
+          for (Map.Entry<String, Integer> wordCount : result.getWordCounts().entrySet()) {
+            out.writeUTF(wordCount.getKey());
+            out.writeInt(wordCount.getValue());
+          }
+          out.writeInt(result.getLinks().size());
+          for (String link : result.getLinks()) {
+            out.writeUTF(link);
+          }
+        }
+        Files.move(
+            temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      // A page that cannot be cached is simply downloaded again next time.
+    }
+  }
+
+  private Path fileFor(String url) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+    digest.update(keyPrefix.getBytes(StandardCharsets.UTF_8));
+    byte[] hash = digest.digest(url.getBytes(StandardCharsets.UTF_8));
+    StringBuilder name = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return directory.resolve(name.toString());
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  /**
+   * A cached parse result, and the validators of the page it was parsed from.
+   */
+  static final class Entry {
+    private final String etag;
+    private final String lastModified;
+    private final PageParser.Result result;
+
+    Entry(String etag, String lastModified, PageParser.Result result) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.result = Objects.requireNonNull(result);
+    }
+
+    String getEtag() {
+      return etag;
+    }
+
+    String getLastModified() {
+      return lastModified;
+    }
+
+    PageParser.Result getResult() {
+      return result;
+    }
+  }
+}
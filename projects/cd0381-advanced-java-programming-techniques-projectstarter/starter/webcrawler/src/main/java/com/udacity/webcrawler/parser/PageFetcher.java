@@ -0,0 +1,52 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiled;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Downloads the raw contents of web pages for a {@link PageParserImpl}.
+ *
+ * <p>Implementations must be thread-safe, since a single fetcher is shared by every parser.
+ */
+interface PageFetcher {
+
+  /**
+   * Downloads the page at the given URI.
+   *
+   * @param uri     the page to download. Both local {@code file:} URIs and remote URIs must be
+   *                supported.
+   * @param timeout how long to wait for the download, or {@link Duration#ZERO} to wait forever.
+   * @throws IOException if the page could not be downloaded, or is not an HTML or XML page.
+   */
+  default FetchedPage fetch(URI uri, Duration timeout) throws IOException {
+    return fetch(uri, timeout, null, null);
+  }
+
+  /**
+   * Downloads the page at the given URI, unless it has not changed since the given validators were
+   * received. In that case, the returned page {@link FetchedPage#isNotModified() is not modified}.
+   *
+   * @param etag         the {@code ETag} received with an earlier copy of the page, or
+   *                     {@code null}.
+   * @param lastModified the {@code Last-Modified} date received with an earlier copy of the page,
+   *                     or {@code null}.
+   */
+  default FetchedPage fetch(URI uri, Duration timeout, String etag, String lastModified)
+      throws IOException {
+    return fetch(uri, timeout, etag, lastModified, CancellationToken.NONE);
+  }
+
+  /**
+   * Downloads the page like {@link #fetch(URI, Duration, String, String)}, but gives up as soon as
+   * the given {@link CancellationToken} is cancelled, even if the download is already in flight.
+   *
+   * @throws IOException if the page could not be downloaded, or the download was cancelled.
+   */
+  @Profiled
+  FetchedPage fetch(
+      URI uri, Duration timeout, String etag, String lastModified, CancellationToken cancellation)
+      throws IOException;
+}
@@ -2,13 +2,13 @@ package com.udacity.webcrawler.parser;
 
 import com.udacity.webcrawler.profiler.Profiled;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -26,20 +26,48 @@ public interface PageParser {
    * A data class that represents the outcome of processing an HTML page.
    */
   final class Result {
-    private final Map<String, Integer> wordCounts;
+    private final WordCountTable wordCounts;
     private final List<String> links;
+    private final long downloadNanos;
+    private volatile Map<String, Integer> wordCountMap;
 
-    private Result(Map<String, Integer> wordCounts, List<String> links) {
+    private Result(WordCountTable wordCounts, List<String> links, long downloadNanos) {
       this.wordCounts = Objects.requireNonNull(wordCounts);
       this.links = Objects.requireNonNull(links);
+      this.downloadNanos = downloadNanos;
     }
 
     /**
      * Returns an unmodifiable {@link Map} containing the words and word frequencies encountered
      * when parsing the web page.
+     *
+     * <p>The map is built the first time this method is called. Callers that only need to visit
+     * every word once should use {@link #forEachWordCount(ObjIntConsumer)} instead, which does not
+     * box the counts.
      */
     public Map<String, Integer> getWordCounts() {
-      return wordCounts;
+      Map<String, Integer> map = wordCountMap;
+      if (map == null) {
+        // Racing threads may each build a map, but they will all be equal.
+        map = wordCounts.toMap();
+        wordCountMap = map;
+      }
+      return map;
+    }
+
+    /**
+     * Calls {@code action} with each word encountered when parsing the web page, and the number of
+     * times it was encountered.
+     */
+    public void forEachWordCount(ObjIntConsumer<? super String> action) {
+      wordCounts.forEach(Objects.requireNonNull(action));
+    }
+
+    /**
+     * Returns the number of distinct words encountered when parsing the web page.
+     */
+    int getDistinctWordCount() {
+      return wordCounts.size();
     }
 
     /**
@@ -49,20 +77,53 @@ public interface PageParser {
       return links;
     }
 
+    /**
+     * Returns how long it took to download the page over the network, in nanoseconds, if this
+     * result comes from a download that succeeded. There is none for local files, for results
+     * served from a cache, and for pages whose download failed or was cancelled.
+     */
+    public OptionalLong getDownloadNanos() {
+      return (downloadNanos < 0) ? OptionalLong.empty() : OptionalLong.of(downloadNanos);
+    }
+
+    /**
+     * Returns a result with the same words and links as this one, and the given download time, or
+     * none if it is negative.
+     */
+    Result withDownloadNanos(long downloadNanos) {
+      return (downloadNanos == this.downloadNanos)
+          ? this
+          : new Result(wordCounts, links, downloadNanos);
+    }
+
     /**
      * A builder class for the parse {@link Result}. This builder keeps track of word counts and
      * hyperlinks encountered while parsing a web page.
      */
     static final class Builder {
-      private final Map<String, Integer> wordCounts = new HashMap<>();
+      private final WordCountTable wordCounts = new WordCountTable();
       private final Set<String> links = new HashSet<>();
 
       /**
        * Increments the frequency counter for the given word.
        */
       void addWord(String word) {
-        Objects.requireNonNull(word);
-        wordCounts.compute(word, (k, v) -> (v == null) ? 1 : v + 1);
+        wordCounts.increment(Objects.requireNonNull(word));
+      }
+
+      /**
+       * Increments the frequency counter for the given word by {@code count}.
+       */
+      void addWord(String word, int count) {
+        wordCounts.add(Objects.requireNonNull(word), count);
+      }
+
+      /**
+       * Increments the frequency counter for the word made of the given characters. The characters
+       * are only copied if this is the first time the word is added.
+       */
+      void addWord(char[] chars, int offset, int length) {
+        wordCounts.increment(chars, offset, length);
       }
 
       /**
@@ -73,12 +134,11 @@ public interface PageParser {
       }
 
       /**
-       * Constructs a {@link Result} from this builder.
+       * Constructs a {@link Result} from this builder. The builder must not be used afterwards.
        */
       Result build() {
         return new Result(
-            Collections.unmodifiableMap(wordCounts),
-            links.stream().collect(Collectors.toUnmodifiableList()));
+            wordCounts, links.stream().collect(Collectors.toUnmodifiableList()), -1);
       }
     }
   }
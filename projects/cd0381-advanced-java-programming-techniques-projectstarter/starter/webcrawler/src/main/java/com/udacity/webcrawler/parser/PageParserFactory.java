@@ -9,5 +9,13 @@ public interface PageParserFactory {
   /**
    * Returns a {@link PageParser} that parses the given {@link url}.
    */
-  PageParser get(String url);
+  default PageParser get(String url) {
+    return get(url, CancellationToken.NONE);
+  }
+
+  /**
+   * Returns a {@link PageParser} that parses the given {@link url}, and gives up on the download
+   * once the given {@link CancellationToken} is cancelled.
+   */
+  PageParser get(String url, CancellationToken cancellation);
 }
@@ -4,31 +4,64 @@ import com.udacity.webcrawler.Timeout;
 import com.udacity.webcrawler.profiler.Profiler;
 
 import javax.inject.Inject;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Duration;
-import java.util.List;
-import java.util.regex.Pattern;
 
 /**
- * A {@link PageParserFactory} that wraps its returned instances using a {@link Profiler}.
+ * A {@link PageParserFactory} that wraps its returned instances using a {@link Profiler}, and, if
+ * it is enabled, the {@link ResultCache}. Parsers are profiled with the host of their page as the
+ * tag.
  */
 final class PageParserFactoryImpl implements PageParserFactory {
   private final Profiler profiler;
-  private final List<Pattern> ignoredWords;
+  private final IgnoredWordSet ignoredWords;
   private final Duration timeout;
+  private final PageFetcher fetcher;
+  private final PageCache cache;
+  private final ResultCache resultCache;
+  private final PageProcessor processor;
 
   @Inject
   PageParserFactoryImpl(
-      Profiler profiler, @IgnoredWords List<Pattern> ignoredWords, @Timeout Duration timeout) {
+      Profiler profiler,
+      @IgnoredWords IgnoredWordSet ignoredWords,
+      @Timeout Duration timeout,
+      PageFetcher fetcher,
+      PageCache cache,
+      ResultCache resultCache,
+      PageProcessor processor) {
     this.profiler = profiler;
     this.ignoredWords = ignoredWords;
     this.timeout = timeout;
+    this.fetcher = fetcher;
+    this.cache = cache;
+    this.resultCache = resultCache;
+    this.processor = processor;
   }
 
   @Override
-  public PageParser get(String url) {
-    // Here, parse the page with the initial timeout (instead of just the time remaining), to make
-    // the download less likely to fail. Deadline enforcement should happen at a higher level.
-    PageParser delegate = new PageParserImpl(url, timeout, ignoredWords);
-    return profiler.wrap(PageParser.class, delegate);
+  public PageParser get(String url, CancellationToken cancellation) {
+    // The parser shortens the timeout to the time left before the crawl's deadline, and aborts the
+    // download if the crawl is cancelled while it is in flight.
+    PageParser delegate =
+        new PageParserImpl(url, timeout, ignoredWords, fetcher, cache, processor, cancellation);
+    return resultCache.wrap(url, profiler.wrap(PageParser.class, delegate, hostTag(url)));
+  }
+
+  /**
+   * Returns the tag that a parser of the given URL is profiled under: the host of the URL, or its
+   * scheme if it has no host, such as for local files.
+   */
+  static String hostTag(String url) {
+    try {
+      URI uri = new URI(url);
+      if (uri.getHost() != null) {
+        return uri.getHost();
+      }
+      return (uri.getScheme() != null) ? uri.getScheme() : "unknown";
+    } catch (URISyntaxException e) {
+      return "invalid";
+    }
   }
 }
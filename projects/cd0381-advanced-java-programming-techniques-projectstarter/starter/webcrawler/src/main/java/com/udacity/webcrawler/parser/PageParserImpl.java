@@ -1,22 +1,9 @@
 package com.udacity.webcrawler.parser;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.Node;
-import org.jsoup.nodes.TextNode;
-import org.jsoup.select.Evaluator.Tag;
-import org.jsoup.select.NodeVisitor;
-
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Duration;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Pattern;
@@ -24,25 +11,36 @@ import java.util.regex.Pattern;
 /**
  * An implementation of {@link PageParser} that works for both local and remote files.
  *
- * <p>HTML parsing is done using the JSoup library. This class is a thin adapter around JSoup's API,
- * since JSoup does not know how to correctly resolve relative hyperlinks when parsing HTML from
- * local files.
+ * <p>This class implements {@link StagedPageParser}, so its download and parse steps can also be
+ * run separately, for example by the {@link PipelinedPageParserFactory}.
+ *
+ * <p>Pages are downloaded by a {@link PageFetcher}, which is shared between parsers so that
+ * connections to a host are reused. If a {@link PageCache} is enabled, the page is requested with a
+ * conditional GET, and the cached result is returned if it has not changed. The words and links
+ * are then extracted by a {@link PageProcessor}: either the {@link JsoupPageProcessor}, which
+ * builds a full JSoup document, or the {@link StreamingPageProcessor}, which does not.
  */
-final class PageParserImpl implements PageParser {
+final class PageParserImpl implements StagedPageParser {
+
+  private final String uri;
+  private final Duration timeout;
+  private final IgnoredWordSet ignoredWords;
+  private final PageFetcher fetcher;
+  private final PageCache cache;
+  private final PageProcessor processor;
+  private final CancellationToken cancellation;
 
   /**
-   * Matches whitespace characters.
+   * The cache entry found by {@link #fetch()}, which {@link #process(FetchedPage)} returns if the
+   * page has not been modified.
    */
-  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private volatile PageCache.Entry cached;
 
   /**
-   * Matches non-word characters.
+   * How long the network download of {@link #fetch()} took, in nanoseconds, or -1 if it did not
+   * download anything. {@link #process(FetchedPage)} attaches it to the result.
    */
-  private static final Pattern NON_WORD_CHARACTERS = Pattern.compile("\\W");
-
-  private final String uri;
-  private final Duration timeout;
-  private final List<Pattern> ignoredWords;
+  private volatile long downloadNanos = -1;
 
   /**
    * Constructs a page parser with the given parameters.
@@ -50,94 +48,101 @@ final class PageParserImpl implements PageParser {
    * @param uri          the URI of the file to parse.
    * @param timeout      the timeout to use when downloading the file, if it is remote.
    * @param ignoredWords patterns of which words should be ignored by the {@link #parse()} method.
+   * @param fetcher      the fetcher that downloads the file.
+   */
+  PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords, PageFetcher fetcher) {
+    this(
+        uri,
+        timeout,
+        IgnoredWordSet.compile(ignoredWords),
+        fetcher,
+        PageCache.DISABLED,
+        new JsoupPageProcessor(),
+        CancellationToken.NONE);
+  }
+
+  /**
+   * Constructs a page parser that ignores the words in an already compiled {@link IgnoredWordSet},
+   * downloads the page with the given {@link PageFetcher}, caches its result in the given
+   * {@link PageCache}, and extracts words and links with the given {@link PageProcessor}. The
+   * download is skipped, cut short or aborted when the given {@link CancellationToken} is
+   * cancelled.
    */
-  PageParserImpl(String uri, Duration timeout, List<Pattern> ignoredWords) {
+  PageParserImpl(
+      String uri,
+      Duration timeout,
+      IgnoredWordSet ignoredWords,
+      PageFetcher fetcher,
+      PageCache cache,
+      PageProcessor processor,
+      CancellationToken cancellation) {
     this.uri = Objects.requireNonNull(uri);
     this.timeout = Objects.requireNonNull(timeout);
     this.ignoredWords = Objects.requireNonNull(ignoredWords);
+    this.fetcher = Objects.requireNonNull(fetcher);
+    this.cache = Objects.requireNonNull(cache);
+    this.processor = Objects.requireNonNull(processor);
+    this.cancellation = Objects.requireNonNull(cancellation);
   }
 
   @Override
   public Result parse() {
-    URI parsedUri;
-    try {
-      parsedUri = new URI(uri);
-    } catch (URISyntaxException e) {
-      // Invalid link; ignore
-      return new Result.Builder().build();
-    }
-
-    Document document;
+    FetchedPage page;
     try {
-      document = parseDocument(parsedUri);
+      page = fetch();
     } catch (Exception e) {
       // There are multiple exceptions that can be encountered due to invalid URIs or Mimetypes that
       // Jsoup does not handle. There is not much we can do here.
       return new Result.Builder().build();
     }
-
-    Result.Builder builder = new Result.Builder();
-    // Do a single pass over the document to gather all hyperlinks and text.
-    document.traverse(new NodeVisitor() {
-      @Override
-      public void head(Node node, int depth) {
-        if (node instanceof TextNode) {
-          String text = ((TextNode) node).text().strip();
-          Arrays.stream(WHITESPACE.split(text))
-              .filter(s -> !s.isBlank())
-              .filter(s -> ignoredWords.stream().noneMatch(p -> p.matcher(s).matches()))
-              .map(s -> NON_WORD_CHARACTERS.matcher(s).replaceAll(""))
-              .map(String::toLowerCase)
-              .forEach(builder::addWord);
-          return;
-        }
-        if (!(node instanceof Element)) {
-          return;
-        }
-        Element element = (Element) node;
-        if (!element.is(new Tag("a")) || !element.hasAttr("href")) {
-          return;
-        }
-        if (isLocalFile(parsedUri)) {
-          // If this is a local file, add the base path back in manually, since Jsoup only knows how
-          // to resolve relative hrefs if the base URI is a "real" remote URI.
-          String basePath = Path.of(parsedUri).getParent().toString();
-          builder.addLink(Path.of(basePath, element.attr("href")).toUri().toString());
-        } else {
-          // Otherwise, let Jsoup resolve the absolute URL for us.
-          builder.addLink(element.attr("abs:href"));
-        }
-      }
-
-      @Override
-      public void tail(Node node, int depth) {
-      }
-    });
-    return builder.build();
+    return process(page);
   }
 
-  /**
-   * Returns a Jsoup {@link Document} representation of the file at the given {@link URI}, which may
-   * refer to a local document or a remote web page.
-   */
-  private Document parseDocument(URI uri) throws IOException {
-    if (!isLocalFile(uri)) {
-      return Jsoup.parse(uri.toURL(), (int) timeout.toMillis());
+  @Override
+  public FetchedPage fetch() throws IOException {
+    URI parsedUri;
+    try {
+      parsedUri = new URI(uri);
+    } catch (URISyntaxException e) {
+      throw new IOException("Invalid link: " + uri, e);
     }
 
-    // Unfortunately, Jsoup.parse() has a baseUri parameter that does not work with local
-    // "file://" URIs. If we want the parser to support those URIs, which are very useful for
-    // testing, the work-around is to pass in an empty baseUri and manually add the base back to
-    // href attributes.
-    try (InputStream in = Files.newInputStream(Path.of(uri))) {
-      return Jsoup.parse(in, StandardCharsets.UTF_8.name(), "");
+    if (cancellation.isCancelled()) {
+      throw new IOException("Crawl was cancelled before downloading " + uri);
     }
+
+    PageCache.Entry entry = cache.get(uri);
+    cached = entry;
+    downloadNanos = -1;
+    Duration limit = cancellation.limit(timeout);
+    long start = System.nanoTime();
+    FetchedPage page =
+        (entry == null)
+            ? fetcher.fetch(parsedUri, limit, null, null, cancellation)
+            : fetcher.fetch(
+                parsedUri, limit, entry.getEtag(), entry.getLastModified(), cancellation);
+    if (!"file".equals(parsedUri.getScheme())) {
+      downloadNanos = System.nanoTime() - start;
+    }
+    return page;
   }
 
-  /**
-   * Returns true if and only if the given {@link URI} represents a local file.
-   */
-  private static boolean isLocalFile(URI uri) {
-    return uri.getScheme() != null && uri.getScheme().equals("file");
+  @Override
+  public Result process(FetchedPage page) {
+    PageCache.Entry entry = cached;
+    if (page.isNotModified() && entry != null) {
+      return entry.getResult().withDownloadNanos(downloadNanos);
+    }
+    Result.Builder builder = new Result.Builder();
+    try {
+      processor.process(page, new WordTokenizer(ignoredWords), builder);
+    } catch (Exception e) {
+      // Not cached, so that the page is processed again the next time instead of being served as
+      // empty for as long as it does not change.
+      return new Result.Builder().build().withDownloadNanos(downloadNanos);
+    }
+    Result result = builder.build();
+    cache.put(uri, page, result);
+    return result.withDownloadNanos(downloadNanos);
   }
 }
@@ -0,0 +1,50 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiled;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+/**
+ * Extracts the words and hyperlinks of a downloaded page for a {@link PageParserImpl}.
+ *
+ * <p>Implementations must be thread-safe, since a single processor is shared by every parser.
+ */
+interface PageProcessor {
+
+  /**
+   * Passes the text of the given page to the tokenizer, and adds its hyperlinks to the builder.
+   *
+   * @throws IOException if the page could not be decoded.
+   */
+  @Profiled
+  void process(FetchedPage page, WordTokenizer tokenizer, PageParser.Result.Builder builder)
+      throws IOException;
+
+  /**
+   * Returns true if and only if the given {@link URI} represents a local file.
+   */
+  static boolean isLocalFile(URI uri) {
+    return uri.getScheme() != null && uri.getScheme().equals("file");
+  }
+
+  /**
+   * Returns the path of the directory that contains the given local file, for
+   * {@link #resolveLocalLink(String, String)}. Callers should compute it once per page, rather than
+   * once per link.
+   */
+  static String localBasePath(URI page) {
+    return Path.of(page).getParent().toString();
+  }
+
+  /**
+   * Resolves an {@code href} found in a local file, given the path of the file's directory.
+   *
+   * <p>Jsoup only knows how to resolve relative hrefs if the base URI is a "real" remote URI, so
+   * for local files the base path is added back in manually.
+   */
+  static String resolveLocalLink(String basePath, String href) {
+    return Path.of(basePath, href).toUri().toString();
+  }
+}
@@ -2,7 +2,11 @@ package com.udacity.webcrawler.parser;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.udacity.webcrawler.profiler.Profiler;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
@@ -15,20 +19,72 @@ import java.util.regex.Pattern;
 public final class ParserModule extends AbstractModule {
   private final Duration timeout;
   private final List<Pattern> ignoredWords;
+  private final boolean pipelined;
+  private final boolean streaming;
+  private final String pageCacheDirectory;
+  private final long resultCacheMaxWeight;
+  private final Duration resultCacheTtl;
 
   /**
    * Creates a {@link ParserModule} from the given timeout and ignored word patterns.
    */
-  private ParserModule(Duration timeout, List<Pattern> ignoredWords) {
+  private ParserModule(
+      Duration timeout,
+      List<Pattern> ignoredWords,
+      boolean pipelined,
+      boolean streaming,
+      String pageCacheDirectory,
+      long resultCacheMaxWeight,
+      Duration resultCacheTtl) {
     this.timeout = timeout;
     this.ignoredWords = ignoredWords;
+    this.pipelined = pipelined;
+    this.streaming = streaming;
+    this.pageCacheDirectory = pageCacheDirectory;
+    this.resultCacheMaxWeight = resultCacheMaxWeight;
+    this.resultCacheTtl = resultCacheTtl;
   }
 
   @Override
   protected void configure() {
     bind(Key.get(Duration.class, ParseDeadline.class)).toInstance(timeout);
-    bind(new Key<List<Pattern>>(IgnoredWords.class) {}).toInstance(ignoredWords);
-    bind(PageParserFactory.class).to(PageParserFactoryImpl.class);
+    // Compiled once here, instead of by every parser.
+    bind(Key.get(IgnoredWordSet.class, IgnoredWords.class))
+        .toInstance(IgnoredWordSet.compile(ignoredWords));
+    bind(PageCache.class).toInstance(
+        pageCacheDirectory.isEmpty()
+            ? PageCache.DISABLED
+            : new PageCache(Path.of(pageCacheDirectory), ignoredWords));
+    if (pipelined) {
+      // Singleton, so that every crawler shares the same pipeline threads.
+      bind(PageParserFactory.class).to(PipelinedPageParserFactory.class).in(Singleton.class);
+    } else {
+      bind(PageParserFactory.class).to(PageParserFactoryImpl.class);
+    }
+  }
+
+  @Provides
+  @Singleton
+  PageFetcher providePageFetcher(HttpClientPageFetcher fetcher, Profiler profiler) {
+    // Singleton, so that every parser shares the same HTTP connections. Profiled separately from
+    // the parsers, so that their time can be split into downloading and processing.
+    return profiler.wrap(PageFetcher.class, fetcher);
+  }
+
+  @Provides
+  PageProcessor providePageProcessor(Profiler profiler) {
+    return profiler.wrap(
+        PageProcessor.class,
+        streaming ? new StreamingPageProcessor() : new JsoupPageProcessor());
+  }
+
+  @Provides
+  @Singleton
+  ResultCache provideResultCache(Profiler profiler) {
+    // Singleton, so that results are shared by every crawl made with this injector.
+    return (resultCacheMaxWeight == 0)
+        ? ResultCache.DISABLED
+        : new ResultCache(resultCacheMaxWeight, resultCacheTtl, profiler);
   }
 
   /**
@@ -37,6 +93,11 @@ public final class ParserModule extends AbstractModule {
   public static final class Builder {
     private Duration timeout;
     private List<Pattern> ignoredWords;
+    private boolean pipelined = false;
+    private boolean streaming = false;
+    private String pageCacheDirectory = "";
+    private long resultCacheMaxWeight = 0;
+    private Duration resultCacheTtl = Duration.ZERO;
 
     /**
      * Sets the timeout that will be used by the page parser.
@@ -54,11 +115,62 @@ public final class ParserModule extends AbstractModule {
       return this;
     }
 
+    /**
+     * Sets whether pages should be downloaded and parsed by separate pipeline stages. See
+     * {@link PipelinedPageParserFactory}.
+     */
+    public Builder setPipelined(boolean pipelined) {
+      this.pipelined = pipelined;
+      return this;
+    }
+
+    /**
+     * Sets whether pages should be scanned in a single streaming pass instead of being parsed into
+     * a document tree. See {@link StreamingPageProcessor}.
+     */
+    public Builder setStreaming(boolean streaming) {
+      this.streaming = streaming;
+      return this;
+    }
+
+    /**
+     * Sets the directory where parse results are cached between crawls, or the empty string to
+     * turn caching off. See {@link PageCache}.
+     */
+    public Builder setPageCacheDirectory(String pageCacheDirectory) {
+      this.pageCacheDirectory = Objects.requireNonNull(pageCacheDirectory);
+      return this;
+    }
+
+    /**
+     * Sets the maximum total weight of the in-memory {@link ResultCache}, or 0 to turn it off.
+     */
+    public Builder setResultCacheMaxWeight(long resultCacheMaxWeight) {
+      this.resultCacheMaxWeight = resultCacheMaxWeight;
+      return this;
+    }
+
+    /**
+     * Sets how long results stay in the in-memory {@link ResultCache}, or {@link Duration#ZERO} for
+     * no limit.
+     */
+    public Builder setResultCacheTtl(Duration resultCacheTtl) {
+      this.resultCacheTtl = Objects.requireNonNull(resultCacheTtl);
+      return this;
+    }
+
     /**
      * Builds a {@link ParserModule} from this {@link Builder}.
      */
     public ParserModule build() {
-      return new ParserModule(timeout, ignoredWords);
+      return new ParserModule(
+          timeout,
+          ignoredWords,
+          pipelined,
+          streaming,
+          pageCacheDirectory,
+          resultCacheMaxWeight,
+          resultCacheTtl);
     }
   }
 }
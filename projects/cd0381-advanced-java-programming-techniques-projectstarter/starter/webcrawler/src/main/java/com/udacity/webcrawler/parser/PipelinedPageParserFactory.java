@@ -0,0 +1,174 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.FetchConcurrency;
+import com.udacity.webcrawler.Timeout;
+import com.udacity.webcrawler.profiler.Profiler;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link PageParserFactory} whose parsers run each page through a two-stage pipeline: a download
+ * stage on a pool of {@code "fetchConcurrency"} I/O threads, followed by a parse stage on a pool
+ * with one thread per CPU core.
+ *
+ * <p>{@link PageParser#parse()} still waits for both stages on the calling thread, so the stages
+ * of different pages only overlap when the crawler itself parses several pages at once. The
+ * {@code SequentialWebCrawler} parses one page at a time, and gains nothing from the pipeline but
+ * two thread hand-offs per page. The parallel crawlers overlap the stages as far as their own
+ * concurrency allows, which for a {@link java.util.concurrent.ForkJoinPool} includes the spare
+ * threads it adds while its workers wait.
+ *
+ * <p>Downloaded pages wait for the parse stage in a bounded buffer. When the buffer is full, the
+ * download threads stop handing off pages until the parse stage catches up, so a slow parse stage
+ * cannot cause downloaded pages to pile up in memory. Since each caller waits for its own page, the
+ * buffer only fills up when the crawler has more pages in flight than the buffer holds.
+ *
+ * <p>Both stages are wrapped with the {@link Profiler}, so the profile data contains separate
+ * timings for {@code PageParserImpl#fetch} and {@code PageParserImpl#process}. The difference
+ * between their sum and the time of the pipelined {@code parse} call is time spent queueing.
+ */
+final class PipelinedPageParserFactory implements PageParserFactory {
+
+  /**
+   * The number of downloaded pages that may wait for the parse stage, per parse thread.
+   */
+  private static final int BUFFERED_PAGES_PER_PARSE_THREAD = 4;
+
+  /**
+   * How long an idle pipeline thread waits for work before it exits.
+   */
+  private static final Duration IDLE_THREAD_TIMEOUT = Duration.ofSeconds(30);
+
+  private final Profiler profiler;
+  private final IgnoredWordSet ignoredWords;
+  private final Duration timeout;
+  private final PageFetcher fetcher;
+  private final PageCache cache;
+  private final ResultCache resultCache;
+  private final PageProcessor processor;
+  private final ExecutorService fetchExecutor;
+  private final ExecutorService parseExecutor;
+  private final Semaphore parseBuffer;
+
+  @Inject
+  PipelinedPageParserFactory(
+      Profiler profiler,
+      @IgnoredWords IgnoredWordSet ignoredWords,
+      @Timeout Duration timeout,
+      @FetchConcurrency int fetchThreads,
+      PageFetcher fetcher,
+      PageCache cache,
+      ResultCache resultCache,
+      PageProcessor processor) {
+    this.profiler = profiler;
+    this.ignoredWords = ignoredWords;
+    this.timeout = timeout;
+    this.fetcher = fetcher;
+    this.cache = cache;
+    this.resultCache = resultCache;
+    this.processor = processor;
+    int parseThreads = Runtime.getRuntime().availableProcessors();
+    this.fetchExecutor = newPool(fetchThreads, "page-fetch");
+    this.parseExecutor = newPool(parseThreads, "page-parse");
+    this.parseBuffer = new Semaphore(parseThreads * (1 + BUFFERED_PAGES_PER_PARSE_THREAD));
+  }
+
+  @Override
+  public PageParser get(String url, CancellationToken cancellation) {
+    String tag = PageParserFactoryImpl.hostTag(url);
+    StagedPageParser stages = profiler.wrap(
+        StagedPageParser.class,
+        new PageParserImpl(url, timeout, ignoredWords, fetcher, cache, processor, cancellation),
+        tag);
+    return resultCache.wrap(
+        url, profiler.wrap(PageParser.class, new PipelinedPageParser(stages), tag));
+  }
+
+  /**
+   * A {@link PageParser} that hands its download and parse stages to the pipeline executors, and
+   * waits for the parse stage to finish.
+   */
+  private final class PipelinedPageParser implements PageParser {
+    private final StagedPageParser stages;
+
+    PipelinedPageParser(StagedPageParser stages) {
+      this.stages = stages;
+    }
+
+    @Override
+    public Result parse() {
+      return CompletableFuture
+          .supplyAsync(this::fetch, fetchExecutor)
+          .thenApplyAsync(this::process, parseExecutor)
+          .join();
+    }
+
+    /**
+     * Runs the download stage, then waits for room in the parse buffer. Returns {@code null} if the
+     * download failed.
+     */
+    private FetchedPage fetch() {
+      FetchedPage page;
+      try {
+        page = stages.fetch();
+      } catch (Exception e) {
+        // Same as PageParserImpl#parse(): a page that cannot be downloaded has no words or links.
+        page = null;
+      }
+      parseBuffer.acquireUninterruptibly();
+      return page;
+    }
+
+    /**
+     * Runs the parse stage, and frees up the page's slot in the parse buffer.
+     */
+    private Result process(FetchedPage page) {
+      try {
+        return (page == null) ? new Result.Builder().build() : stages.process(page);
+      } finally {
+        parseBuffer.release();
+      }
+    }
+  }
+
+  /**
+   * Returns a pool of at most {@code threads} threads, whose threads exit once they have been idle
+   * for {@link #IDLE_THREAD_TIMEOUT}. The factory is never shut down, so this is what keeps every
+   * injector that creates one, such as those of an embedding service or of tests, from leaving its
+   * threads behind.
+   */
+  private static ExecutorService newPool(int threads, String prefix) {
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            IDLE_THREAD_TIMEOUT.toNanos(),
+            TimeUnit.NANOSECONDS,
+            new LinkedBlockingQueue<>(),
+            daemonThreads(prefix));
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Returns a {@link ThreadFactory} for daemon threads, so that idle pipeline threads never keep
+   * the JVM alive.
+   */
+  private static ThreadFactory daemonThreads(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
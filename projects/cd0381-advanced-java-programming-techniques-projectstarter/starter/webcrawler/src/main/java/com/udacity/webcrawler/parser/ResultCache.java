@@ -0,0 +1,251 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-memory cache of parse {@link PageParser.Result}s, keyed by URL, for processes that crawl
+ * overlapping sets of pages again and again.
+ *
+ * <p>The cache is bounded by weight rather than by entry count: an entry weighs one plus the number
+ * of distinct words and links in its result, which is roughly proportional to its memory use. When
+ * adding an entry pushes the cache over its maximum weight, the least recently used entries are
+ * evicted. Entries also expire a fixed time after they were added, so pages that changed are
+ * eventually parsed again.
+ *
+ * <p>To keep threads from contending on a single lock, the cache is split into segments by URL
+ * hash, each with its own lock, LRU order and share of the maximum weight.
+ *
+ * <p>Every lookup is counted as a hit or a miss with the {@link Profiler}, under the names
+ * {@code "ResultCache#hits"} and {@code "ResultCache#misses"}.
+ *
+ * <p>This class is thread-safe.
+ */
+final class ResultCache {
+
+  /**
+   * A cache that never stores anything, for crawls that have caching turned off.
+   */
+  static final ResultCache DISABLED = new ResultCache();
+
+  private static final int SEGMENT_COUNT = 16;
+
+  private final Segment[] segments;
+  private final long ttlNanos;
+  private final Profiler profiler;
+  private final LongSupplier ticker;
+
+  private ResultCache() {
+    this.segments = new Segment[0];
+    this.ttlNanos = 0;
+    this.profiler = null;
+    this.ticker = null;
+  }
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maxWeight the maximum total weight of the cached results.
+   * @param ttl       how long a result stays in the cache after it was added, or
+   *                  {@link Duration#ZERO} if results only leave the cache when they are evicted.
+   * @param profiler  the profiler that counts hits and misses.
+   */
+  ResultCache(long maxWeight, Duration ttl, Profiler profiler) {
+    this(maxWeight, ttl, profiler, System::nanoTime);
+  }
+
+  /**
+   * Creates an empty cache that reads the time from the given ticker, in nanoseconds.
+   */
+  ResultCache(long maxWeight, Duration ttl, Profiler profiler, LongSupplier ticker) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("maxWeight must be positive");
+    }
+    if (ttl.isNegative()) {
+      throw new IllegalArgumentException("ttl cannot be negative");
+    }
+    this.segments = new Segment[SEGMENT_COUNT];
+    long segmentWeight = Math.max(1, maxWeight / SEGMENT_COUNT);
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment(segmentWeight);
+    }
+    this.ttlNanos = ttl.toNanos();
+    this.profiler = Objects.requireNonNull(profiler);
+    this.ticker = Objects.requireNonNull(ticker);
+  }
+
+  /**
+   * Returns true if this cache stores results at all.
+   */
+  boolean isEnabled() {
+    return segments.length > 0;
+  }
+
+  /**
+   * Returns the cached result for the given URL, or {@code null} if there is none or it expired.
+   */
+  PageParser.Result get(String url) {
+    if (!isEnabled()) {
+      return null;
+    }
+    PageParser.Result result = segmentFor(url).get(url, ticker.getAsLong());
+    profiler.count((result != null) ? "ResultCache#hits" : "ResultCache#misses", 1);
+    return result;
+  }
+
+  /**
+   * Caches the result of parsing the given URL.
+   *
+   * <p>Empty results are not cached, since that is also what a page that failed to download parses
+   * to, and the failure may be temporary. Results are cached without their download time, since
+   * serving them again does not download anything.
+   */
+  void put(String url, PageParser.Result result) {
+    if (!isEnabled() || (result.getDistinctWordCount() == 0 && result.getLinks().isEmpty())) {
+      return;
+    }
+    long weight = 1L + result.getDistinctWordCount() + result.getLinks().size();
+    long now = ticker.getAsLong();
+    long expiresAt = (ttlNanos == 0) ? 0 : now + ttlNanos;
+    segmentFor(url).put(url, new Entry(result.withDownloadNanos(-1), weight, expiresAt), now);
+  }
+
+  /**
+   * Returns a {@link PageParser} that returns the cached result for the given URL if there is one,
+   * and otherwise runs the given parser and caches its result.
+   */
+  PageParser wrap(String url, PageParser parser) {
+    if (!isEnabled()) {
+      return parser;
+    }
+    return () -> {
+      PageParser.Result result = get(url);
+      if (result == null) {
+        result = parser.parse();
+        put(url, result);
+      }
+      return result;
+    };
+  }
+
+  /**
+   * Returns the total weight of the cached results, including any that expired but were not yet
+   * removed.
+   */
+  long weight() {
+    long weight = 0;
+    for (Segment segment : segments) {
+      weight += segment.weight();
+    }
+    return weight;
+  }
+
+  private Segment segmentFor(String url) {
+    int hash = url.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+  }
+
+  /**
+   * A cached result, its weight, and when it expires.
+   */
+  private static final class Entry {
+    final PageParser.Result result;
+    final long weight;
+    /**
+     * The {@link System#nanoTime()} at which this entry expires, or 0 if it never does.
+     */
+    final long expiresAt;
+
+    Entry(PageParser.Result result, long weight, long expiresAt) {
+      this.result = result;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return expiresAt != 0 && now - expiresAt >= 0;
+    }
+  }
+
+  /**
+   * One lock-protected share of the cache, with its entries in least recently used order.
+   */
+  private static final class Segment {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxWeight;
+    private long weight;
+
+    Segment(long maxWeight) {
+      this.maxWeight = maxWeight;
+    }
+
+    PageParser.Result get(String url, long now) {
+      lock.lock();
+      try {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+          return null;
+        }
+        if (entry.isExpired(now)) {
+          entries.remove(url);
+          weight -= entry.weight;
+          return null;
+        }
+        return entry.result;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void put(String url, Entry entry, long now) {
+      if (entry.weight > maxWeight) {
+        // It would evict everything else and then itself.
+        return;
+      }
+      lock.lock();
+      try {
+        Entry previous = entries.put(url, entry);
+        if (previous != null) {
+          weight -= previous.weight;
+        }
+        weight += entry.weight;
+        // Evict expired entries first, then the least recently used ones.
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+          Entry e = it.next().getValue();
+          if (e != entry && e.isExpired(now)) {
+            it.remove();
+            weight -= e.weight;
+          }
+        }
+        it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+          Entry e = it.next().getValue();
+          if (e != entry) {
+            it.remove();
+            weight -= e.weight;
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    long weight() {
+      lock.lock();
+      try {
+        return weight;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
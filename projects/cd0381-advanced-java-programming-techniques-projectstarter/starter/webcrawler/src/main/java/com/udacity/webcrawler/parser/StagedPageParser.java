@@ -0,0 +1,29 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiled;
+
+import java.io.IOException;
+
+/**
+ * A {@link PageParser} whose work is split into a blocking download stage and a CPU-bound parse
+ * stage, so that the two stages can run on different threads.
+ *
+ * <p>Calling {@link #parse()} is equivalent to calling {@link #process(FetchedPage)} with the
+ * result of {@link #fetch()}, returning an empty {@link Result} if the download fails.
+ */
+public interface StagedPageParser extends PageParser {
+
+  /**
+   * Downloads or reads the HTML page, without parsing it.
+   *
+   * @throws IOException if the page could not be downloaded.
+   */
+  @Profiled
+  FetchedPage fetch() throws IOException;
+
+  /**
+   * Parses a page returned by {@link #fetch()} and returns a {@link Result} for it.
+   */
+  @Profiled
+  Result process(FetchedPage page);
+}
@@ -0,0 +1,543 @@
+package com.udacity.webcrawler.parser;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link PageProcessor} that scans the page in a single streaming pass, without building a
+ * document tree.
+ *
+ * <p>The scanner decodes the page straight from its {@link FetchedPage#getBody() body}, which for
+ * large local files is a memory-mapped buffer, into a small character buffer. It recognizes just
+ * enough HTML to find what the crawler needs: runs of text between tags, and the {@code href} of
+ * {@code <a>} tags. Each run of text is handed to the {@link WordTokenizer} as soon as the next tag
+ * starts, and then discarded, so the memory used while processing a page does not grow with its
+ * size, apart from the list of links.
+ *
+ * <p>The results match those of the {@link JsoupPageProcessor} for the pages a crawler runs into:
+ * text is split into the same runs as Jsoup's text nodes, character references are decoded by
+ * Jsoup's own decoder, the contents of {@code <script>} and {@code <style>} are skipped, and links
+ * are resolved against the first {@code <base href>} of the page, if there is one. What the scanner
+ * does not do is repair malformed markup the way a browser would, such as moving misplaced text
+ * out of a table, which changes the order of text but not which words a page contains.
+ */
+final class StreamingPageProcessor implements PageProcessor {
+
+  /**
+   * How many bytes at the start of a page are searched for a {@code <meta>} charset declaration, as
+   * in the HTML encoding sniffing algorithm.
+   */
+  private static final int CHARSET_PRESCAN_BYTES = 1024;
+
+  private static final Pattern META_CHARSET = Pattern.compile(
+      "<meta[^>]+charset\\s*=\\s*[\"']?\\s*([a-zA-Z0-9_.:-]+)", Pattern.CASE_INSENSITIVE);
+
+  @Override
+  public void process(FetchedPage page, WordTokenizer tokenizer, PageParser.Result.Builder builder)
+      throws IOException {
+    ByteBuffer body = page.getBody();
+    Charset charset = detectCharset(body, page.getCharset());
+    Scanner scanner = new Scanner(new ByteBufferReader(body, charset), tokenizer, builder);
+    scanner.scan();
+
+    URI uri = page.getUri();
+    if (PageProcessor.isLocalFile(uri)) {
+      String basePath = PageProcessor.localBasePath(uri);
+      for (String href : scanner.hrefs) {
+        builder.addLink(PageProcessor.resolveLocalLink(basePath, href));
+      }
+    } else {
+      String baseUri = page.getBaseUri();
+      if (scanner.baseHref != null) {
+        String resolved = StringUtil.resolve(baseUri, scanner.baseHref);
+        if (!resolved.isEmpty()) {
+          baseUri = resolved;
+        }
+      }
+      for (String href : scanner.hrefs) {
+        builder.addLink(StringUtil.resolve(baseUri, href));
+      }
+    }
+  }
+
+  /**
+   * Returns the charset of the page: the one of its byte order mark if it has one, otherwise the
+   * given charset, otherwise the one declared in a {@code <meta>} tag, and otherwise UTF-8. Skips
+   * past the byte order mark, if there is one.
+   */
+  private static Charset detectCharset(ByteBuffer body, String charsetName) {
+    int p = body.position();
+    int remaining = body.remaining();
+    if (remaining >= 3
+        && (body.get(p) & 0xFF) == 0xEF
+        && (body.get(p + 1) & 0xFF) == 0xBB
+        && (body.get(p + 2) & 0xFF) == 0xBF) {
+      body.position(p + 3);
+      return StandardCharsets.UTF_8;
+    }
+    if (remaining >= 2 && (body.get(p) & 0xFF) == 0xFE && (body.get(p + 1) & 0xFF) == 0xFF) {
+      body.position(p + 2);
+      return StandardCharsets.UTF_16BE;
+    }
+    if (remaining >= 2 && (body.get(p) & 0xFF) == 0xFF && (body.get(p + 1) & 0xFF) == 0xFE) {
+      body.position(p + 2);
+      return StandardCharsets.UTF_16LE;
+    }
+
+    if (charsetName == null) {
+      byte[] start = new byte[Math.min(remaining, CHARSET_PRESCAN_BYTES)];
+      body.duplicate().get(start);
+      Matcher meta = META_CHARSET.matcher(new String(start, StandardCharsets.ISO_8859_1));
+      if (meta.find()) {
+        charsetName = meta.group(1);
+      }
+    }
+    try {
+      if (charsetName != null && Charset.isSupported(charsetName)) {
+        return Charset.forName(charsetName);
+      }
+    } catch (IllegalCharsetNameException e) {
+      // Fall back to the default, like Jsoup does.
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * A {@link Reader} that decodes the remaining bytes of a {@link ByteBuffer}. Unlike an
+   * {@link java.io.InputStreamReader}, it decodes straight out of the buffer, which for a
+   * memory-mapped file means straight out of the page cache, without copying the bytes first.
+   */
+  private static final class ByteBufferReader extends Reader {
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean decoded;
+    private boolean flushed;
+
+    ByteBufferReader(ByteBuffer bytes, Charset charset) {
+      this.bytes = bytes;
+      // Malformed input is replaced, like InputStreamReader does.
+      this.decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, chars.length);
+      if (length == 0) {
+        return 0;
+      }
+      CharBuffer out = CharBuffer.wrap(chars, offset, length);
+      if (!decoded) {
+        // The whole input is already in the buffer, so every call can pass endOfInput.
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError()) {
+          result.throwException();
+        }
+        decoded = result.isUnderflow();
+      }
+      if (decoded && !flushed) {
+        flushed = decoder.flush(out).isUnderflow();
+      }
+      int n = out.position() - offset;
+      return (n == 0 && flushed) ? -1 : n;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Scans a single page. The text runs go straight to the tokenizer, while the links are collected
+   * so they can be resolved once the {@code <base>} of the page is known.
+   */
+  private static final class Scanner {
+    private final Reader reader;
+    private final WordTokenizer tokenizer;
+    private final PageParser.Result.Builder builder;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+
+    private final StringBuilder text = new StringBuilder();
+    private final StringBuilder name = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+
+    final List<String> hrefs = new ArrayList<>();
+    String baseHref;
+
+    Scanner(Reader reader, WordTokenizer tokenizer, PageParser.Result.Builder builder) {
+      this.reader = reader;
+      this.tokenizer = tokenizer;
+      this.builder = builder;
+    }
+
+    void scan() throws IOException {
+      int c;
+      while ((c = read()) != -1) {
+        if (c == '<') {
+          markup();
+        } else {
+          text.append((char) c);
+        }
+      }
+      flushText(true);
+    }
+
+    /**
+     * Handles whatever follows a {@code '<'}: a tag, a comment, or just a literal character.
+     */
+    private void markup() throws IOException {
+      int c = peek();
+      if (isAsciiLetter(c)) {
+        flushText(true);
+        startTag();
+      } else if (c == '/') {
+        read();
+        c = peek();
+        if (isAsciiLetter(c)) {
+          flushText(true);
+          // End tags carry nothing the crawler needs.
+          skipTag();
+        } else if (c == '>') {
+          read();
+        } else {
+          flushText(true);
+          skipPast('>');
+        }
+      } else if (c == '!') {
+        read();
+        flushText(true);
+        if (peek() == '-') {
+          read();
+          if (peek() == '-') {
+            read();
+            skipComment();
+            return;
+          }
+        } else if (peek() == '[' && lookingAt("[CDATA[")) {
+          cdata();
+          return;
+        }
+        // A doctype, or something Jsoup would read as a bogus comment.
+        skipPast('>');
+      } else if (c == '?') {
+        flushText(true);
+        skipPast('>');
+      } else {
+        text.append('<');
+      }
+    }
+
+    /**
+     * Reads a start tag, after its {@code '<'}.
+     */
+    private void startTag() throws IOException {
+      String tagName = readName();
+      boolean wantsHref = tagName.equals("a") || (tagName.equals("base") && baseHref == null);
+      String href = null;
+      int c;
+      while (true) {
+        while ((c = peek()) != -1 && (isSpace(c) || c == '/')) {
+          read();
+        }
+        if (c == -1) {
+          return;
+        }
+        if (c == '>') {
+          read();
+          break;
+        }
+        String attribute = readAttributeName();
+        boolean hasValue = readAttributeValue();
+        if (wantsHref && href == null && attribute.equals("href")) {
+          // Only the first of duplicate attributes counts.
+          href = hasValue ? Parser.unescapeEntities(value.toString(), true) : "";
+        }
+      }
+
+      if (href != null) {
+        if (tagName.equals("a")) {
+          hrefs.add(href);
+        } else {
+          baseHref = href;
+        }
+      }
+
+      switch (tagName) {
+        case "script":
+        case "style":
+          // Jsoup keeps these as data, not text.
+          skipRawText(tagName, false, false);
+          break;
+        case "title":
+        case "textarea":
+          skipRawText(tagName, true, true);
+          break;
+        case "iframe":
+        case "noembed":
+        case "noframes":
+        case "xmp":
+          skipRawText(tagName, true, false);
+          break;
+        default:
+          break;
+      }
+    }
+
+    private String readName() throws IOException {
+      name.setLength(0);
+      int c;
+      while ((c = peek()) != -1 && !isSpace(c) && c != '/' && c != '>') {
+        name.append(Character.toLowerCase((char) read()));
+      }
+      return name.toString();
+    }
+
+    private String readAttributeName() throws IOException {
+      name.setLength(0);
+      // A leading '=' is part of the name.
+      name.append(Character.toLowerCase((char) read()));
+      int c;
+      while ((c = peek()) != -1 && !isSpace(c) && c != '/' && c != '>' && c != '=') {
+        name.append(Character.toLowerCase((char) read()));
+      }
+      return name.toString();
+    }
+
+    /**
+     * Reads the {@code ="value"} part of an attribute, if there is one, into {@link #value}.
+     */
+    private boolean readAttributeValue() throws IOException {
+      int c;
+      while ((c = peek()) != -1 && isSpace(c)) {
+        read();
+      }
+      if (c != '=') {
+        return false;
+      }
+      read();
+      while ((c = peek()) != -1 && isSpace(c)) {
+        read();
+      }
+      value.setLength(0);
+      if (c == '"' || c == '\'') {
+        int quote = read();
+        while ((c = read()) != -1 && c != quote) {
+          value.append((char) c);
+        }
+      } else {
+        while ((c = peek()) != -1 && !isSpace(c) && c != '>') {
+          value.append((char) read());
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Skips the rest of a tag whose name was not read yet, including its attributes.
+     */
+    private void skipTag() throws IOException {
+      readName();
+      int c;
+      while ((c = peek()) != -1 && c != '>') {
+        if (c == '"' || c == '\'') {
+          int quote = read();
+          while ((c = read()) != -1 && c != quote) {
+            // Skip the quoted value, which may contain a '>'.
+          }
+        } else {
+          read();
+        }
+      }
+      read();
+    }
+
+    /**
+     * Reads the contents of an element whose contents are not markup, up to its end tag.
+     *
+     * @param keep   whether the contents are text.
+     * @param decode whether character references in the contents are decoded.
+     */
+    private void skipRawText(String tagName, boolean keep, boolean decode) throws IOException {
+      int c;
+      while ((c = read()) != -1) {
+        if (c == '<' && peek() == '/' && endTagFollows(tagName)) {
+          flushText(decode);
+          skipTag();
+          return;
+        }
+        if (keep) {
+          text.append((char) c);
+        }
+      }
+      flushText(decode);
+    }
+
+    /**
+     * Returns true if the next characters, after a {@code '/'} that has not been read, are the
+     * given tag name followed by the end of the name. Reads nothing if they are not.
+     */
+    private boolean endTagFollows(String tagName) throws IOException {
+      int length = tagName.length() + 2;
+      if (!fill(length)) {
+        return false;
+      }
+      for (int i = 0; i < tagName.length(); i++) {
+        if (Character.toLowerCase(buffer[position + 1 + i]) != tagName.charAt(i)) {
+          return false;
+        }
+      }
+      char after = buffer[position + length - 1];
+      if (!isSpace(after) && after != '/' && after != '>') {
+        return false;
+      }
+      read();
+      return true;
+    }
+
+    /**
+     * Reads a CDATA section, after its {@code "<!"}. Jsoup keeps it as a text node.
+     */
+    private void cdata() throws IOException {
+      position += "[CDATA[".length();
+      int brackets = 0;
+      int c;
+      while ((c = read()) != -1) {
+        if (c == '>' && brackets >= 2) {
+          text.setLength(text.length() - 2);
+          break;
+        }
+        brackets = (c == ']') ? brackets + 1 : 0;
+        text.append((char) c);
+      }
+      flushText(false);
+    }
+
+    /**
+     * Returns true if the next characters are the given string. Reads nothing either way.
+     */
+    private boolean lookingAt(String s) throws IOException {
+      if (!fill(s.length())) {
+        return false;
+      }
+      for (int i = 0; i < s.length(); i++) {
+        if (buffer[position + i] != s.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void skipComment() throws IOException {
+      // "-->" ends the comment, and so does "--!>".
+      int dashes = 0;
+      int c;
+      while ((c = read()) != -1) {
+        if (c == '>' && dashes >= 2) {
+          return;
+        }
+        if (c == '!' && dashes >= 2 && peek() == '>') {
+          read();
+          return;
+        }
+        dashes = (c == '-') ? dashes + 1 : 0;
+      }
+    }
+
+    private void skipPast(char end) throws IOException {
+      int c;
+      while ((c = read()) != -1 && c != end) {
+        // Skip.
+      }
+    }
+
+    private void flushText(boolean decode) {
+      if (text.length() == 0) {
+        return;
+      }
+      String run = text.toString();
+      text.setLength(0);
+      if (decode && run.indexOf('&') >= 0) {
+        run = Parser.unescapeEntities(run, false);
+      }
+      if (needsNormalizing(run)) {
+        // Jsoup's TextNode.text() turns non-breaking spaces into spaces, and drops soft hyphens
+        // and zero-width spaces. The tokenizer takes care of every other kind of whitespace.
+        run = StringUtil.normaliseWhitespace(run);
+      }
+      tokenizer.tokenize(run, builder);
+    }
+
+    private int read() throws IOException {
+      if (position == limit && !fill(1)) {
+        return -1;
+      }
+      return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+      if (position == limit && !fill(1)) {
+        return -1;
+      }
+      return buffer[position];
+    }
+
+    /**
+     * Makes sure at least {@code count} characters are buffered, and returns false if the page
+     * ends before that.
+     */
+    private boolean fill(int count) throws IOException {
+      if (limit - position >= count) {
+        return true;
+      }
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+      while (limit < count) {
+        int n = reader.read(buffer, limit, buffer.length - limit);
+        if (n == -1) {
+          return false;
+        }
+        limit += n;
+      }
+      return true;
+    }
+
+    private static boolean needsNormalizing(String run) {
+      for (int i = 0; i < run.length(); i++) {
+        char c = run.charAt(i);
+        if (c == '\u00A0' || c == '\u00AD' || c == '\u200B') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static boolean isAsciiLetter(int c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isSpace(int c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+  }
+}
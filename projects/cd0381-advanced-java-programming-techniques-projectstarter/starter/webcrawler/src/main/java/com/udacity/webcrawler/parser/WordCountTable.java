@@ -0,0 +1,160 @@
+package com.udacity.webcrawler.parser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A hash table from words to {@code int} counts, used to count the words of a single page.
+ *
+ * <p>Unlike a {@code HashMap<String, Integer>}, counting a word that is already in the table
+ * allocates nothing: keys and counts live in two parallel arrays, and collisions are resolved by
+ * linear probing instead of chaining entry objects.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class WordCountTable {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private String[] words = new String[INITIAL_CAPACITY];
+  private int[] counts = new int[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Increments the count of the given word by one.
+   */
+  void increment(String word) {
+    add(word, 1);
+  }
+
+  /**
+   * Increments the count of the given word by {@code count}.
+   */
+  void add(String word, int count) {
+    int hash = word.hashCode();
+    int slot = indexOf(word, hash);
+    if (words[slot] == null) {
+      // Keep the table at most half full, so probe sequences stay short.
+      if ((size + 1) * 2 > words.length) {
+        resize();
+        slot = indexOf(word, hash);
+      }
+      words[slot] = word;
+      size++;
+    }
+    counts[slot] += count;
+  }
+
+  /**
+   * Increments the count of the word made of {@code length} characters of {@code chars}, starting
+   * at {@code offset}. A {@link String} is only allocated if the word is not in the table yet.
+   */
+  void increment(char[] chars, int offset, int length) {
+    // Same hash as String.hashCode(), so both increment methods agree on where a word lives.
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int slot = indexOf(chars, offset, length, hash);
+    if (words[slot] == null) {
+      String word = new String(chars, offset, length);
+      if ((size + 1) * 2 > words.length) {
+        resize();
+        slot = indexOf(word, hash);
+      }
+      words[slot] = word;
+      size++;
+    }
+    counts[slot]++;
+  }
+
+  /**
+   * Returns the number of distinct words in this table.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Calls {@code action} with every word in this table and its count.
+   */
+  void forEach(ObjIntConsumer<? super String> action) {
+    for (int i = 0; i < words.length; i++) {
+      if (words[i] != null) {
+        action.accept(words[i], counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Returns an unmodifiable {@link Map} copy of this table.
+   */
+  Map<String, Integer> toMap() {
+    Map<String, Integer> map = new HashMap<>(size * 4 / 3 + 1);
+    forEach(map::put);
+    return Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * Returns the slot that holds the given word, or the empty slot where it should be inserted.
+   */
+  private int indexOf(String word, int hash) {
+    int mask = words.length - 1;
+    int slot = spread(hash) & mask;
+    while (words[slot] != null && !words[slot].equals(word)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Like {@link #indexOf(String, int)}, but looks up the word made of the given characters.
+   */
+  private int indexOf(char[] chars, int offset, int length, int hash) {
+    int mask = words.length - 1;
+    int slot = spread(hash) & mask;
+    while (words[slot] != null && !contentEquals(words[slot], chars, offset, length)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static boolean contentEquals(String word, char[] chars, int offset, int length) {
+    if (word.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (word.charAt(i) != chars[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Doubles the capacity of this table.
+   */
+  private void resize() {
+    String[] oldWords = words;
+    int[] oldCounts = counts;
+    words = new String[oldWords.length * 2];
+    counts = new int[oldCounts.length * 2];
+    for (int i = 0; i < oldWords.length; i++) {
+      if (oldWords[i] != null) {
+        int slot = indexOf(oldWords[i], oldWords[i].hashCode());
+        words[slot] = oldWords[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+
+  /**
+   * Mixes the bits of a {@link String#hashCode()}, whose low bits are poorly distributed for short
+   * words.
+   */
+  private static int spread(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,91 @@
+package com.udacity.webcrawler.parser;
+
+/**
+ * Splits the text of a web page into words and adds them to a {@link PageParser.Result.Builder}.
+ *
+ * <p>The words are the same ones the parser used to get by splitting the stripped text on the
+ * {@code \s+} regex, dropping blank and ignored tokens, removing every {@code \W} character and
+ * lower-casing what is left. This class does all of that in a single pass over the text: ignored
+ * words are matched against a region of the text instead of a substring, and the word itself is
+ * built in a reusable {@code char} buffer, so a token only allocates if it is a word the page has
+ * not used before.
+ *
+ * <p>Instances keep state between calls, so each thread needs its own tokenizer.
+ */
+final class WordTokenizer {
+  private final IgnoredWordSet.WordMatcher ignoredWords;
+  private char[] buffer = new char[32];
+
+  /**
+   * Creates a tokenizer that skips tokens which are in the given {@link IgnoredWordSet}.
+   */
+  WordTokenizer(IgnoredWordSet ignoredWords) {
+    this.ignoredWords = ignoredWords.newMatcher();
+  }
+
+  /**
+   * Adds every word in the given text to the builder.
+   */
+  void tokenize(String text, PageParser.Result.Builder builder) {
+    // Equivalent to text.strip(), without the copy.
+    int begin = 0;
+    int end = text.length();
+    while (begin < end && Character.isWhitespace(text.charAt(begin))) {
+      begin++;
+    }
+    while (end > begin && Character.isWhitespace(text.charAt(end - 1))) {
+      end--;
+    }
+
+    ignoredWords.reset(text);
+    int start = begin;
+    while (start < end) {
+      while (start < end && isSeparator(text.charAt(start))) {
+        start++;
+      }
+      int stop = start;
+      while (stop < end && !isSeparator(text.charAt(stop))) {
+        stop++;
+      }
+      if (start < stop && !isBlank(text, start, stop) && !ignoredWords.matches(start, stop)) {
+        addWord(text, start, stop, builder);
+      }
+      start = stop;
+    }
+  }
+
+  /**
+   * Adds the word characters of {@code text[start, stop)}, lower-cased, as a single word.
+   */
+  private void addWord(String text, int start, int stop, PageParser.Result.Builder builder) {
+    if (buffer.length < stop - start) {
+      buffer = new char[Math.max(stop - start, buffer.length * 2)];
+    }
+    int length = 0;
+    for (int i = start; i < stop; i++) {
+      char c = text.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        buffer[length++] = (char) (c + ('a' - 'A'));
+      } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_') {
+        buffer[length++] = c;
+      }
+    }
+    builder.addWord(buffer, 0, length);
+  }
+
+  /**
+   * Returns true if {@code c} is matched by the {@code \s} regex character class.
+   */
+  private static boolean isSeparator(char c) {
+    return c == ' ' || (c >= '\t' && c <= '\r');
+  }
+
+  private static boolean isBlank(String text, int start, int stop) {
+    for (int i = start; i < stop; i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,46 @@
+package com.udacity.webcrawler.profiler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number, total and longest latency of a group of calls, for the breakdowns of
+ * {@link ProfilerDimension}.
+ *
+ * <p>Unlike a {@link LatencyHistogram}, this only takes a few striped counters, so there can be one
+ * for every host or thread of a crawl.
+ *
+ * <p>This class is thread-safe.
+ */
+final class CallTotals {
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records one call that took the given number of nanoseconds.
+   */
+  void record(long nanos) {
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  long count() {
+    return count.sum();
+  }
+
+  Duration total() {
+    return Duration.ofNanos(totalNanos.sum());
+  }
+
+  Duration mean() {
+    long count = count();
+    return (count == 0) ? Duration.ZERO : Duration.ofNanos(totalNanos.sum() / count);
+  }
+
+  Duration max() {
+    return Duration.ofNanos(maxNanos.get());
+  }
+}
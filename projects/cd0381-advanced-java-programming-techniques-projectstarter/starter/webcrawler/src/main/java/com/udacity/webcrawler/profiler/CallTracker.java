@@ -0,0 +1,86 @@
+package com.udacity.webcrawler.profiler;
+
+import java.util.Objects;
+
+/**
+ * Keeps track of the profiled calls in progress on each thread, for the
+ * {@link ProfilerDimension#THREAD} and {@link ProfilerDimension#CALLER} breakdowns.
+ *
+ * <p>Every thread has its own stack of calls, so entering and exiting a call only touches state
+ * that is private to the calling thread, apart from the striped counters it is recorded in.
+ */
+final class CallTracker {
+  private final ProfilingState profilingState;
+  private final boolean threads;
+  private final boolean callers;
+  private final ThreadLocal<ThreadCalls> calls = ThreadLocal.withInitial(ThreadCalls::new);
+
+  /**
+   * @param profilingState the state to record the breakdowns in.
+   * @param threads        whether to record the time of each thread.
+   * @param callers        whether to record the time of nested calls per caller.
+   */
+  CallTracker(ProfilingState profilingState, boolean threads, boolean callers) {
+    this.profilingState = Objects.requireNonNull(profilingState);
+    this.threads = threads;
+    this.callers = callers;
+  }
+
+  /**
+   * Marks the start of a call to the method with the given key on the current thread.
+   *
+   * @return the call, which must be passed to {@link #exit(Call, long)} when it returns.
+   */
+  Call enter(String key) {
+    ThreadCalls thread = calls.get();
+    Call call = new Call(key, thread.current, thread);
+    thread.current = call;
+    return call;
+  }
+
+  /**
+   * Marks the end of the given call, which took the given number of nanoseconds.
+   */
+  void exit(Call call, long nanos) {
+    ThreadCalls thread = call.thread;
+    thread.current = call.caller;
+    if (call.caller == null) {
+      if (threads) {
+        if (thread.totals == null) {
+          Thread current = Thread.currentThread();
+          thread.totals = profilingState.threadTotals(current.getId(), current.getName());
+        }
+        thread.totals.record(nanos);
+      }
+    } else if (callers) {
+      profilingState.callerTotals(call.caller.key, call.key).record(nanos);
+    }
+  }
+
+  /**
+   * A profiled call in progress.
+   */
+  static final class Call {
+    private final String key;
+    private final Call caller;
+    private final ThreadCalls thread;
+
+    private Call(String key, Call caller, ThreadCalls thread) {
+      this.key = key;
+      this.caller = caller;
+      this.thread = thread;
+    }
+  }
+
+  /**
+   * The calls in progress on a single thread.
+   */
+  private static final class ThreadCalls {
+    private Call current;
+
+    /**
+     * The totals of this thread, looked up when its first call returns.
+     */
+    private CallTotals totals;
+  }
+}
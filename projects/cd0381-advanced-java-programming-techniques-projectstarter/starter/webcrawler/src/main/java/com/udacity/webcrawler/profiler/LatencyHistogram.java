@@ -0,0 +1,146 @@
+package com.udacity.webcrawler.profiler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the latencies of a single profiled method in logarithmic buckets, so that percentiles of
+ * its latency can be reported, not just the total.
+ *
+ * <p>The buckets follow the same layout as an HdrHistogram. Every power of two is split into
+ * {@value #SUB_BUCKETS} equally wide sub-buckets, so a latency is placed in a bucket no wider than
+ * 1/{@value #SUB_BUCKETS} of its value, whether it took a microsecond or a minute. Percentiles are
+ * therefore accurate to within about 1.6%, while the histogram takes a fixed amount of memory.
+ *
+ * <p>Recording is lock-free: it only updates atomic counters, so many threads can record into the
+ * same histogram at once. Reads are not atomic with respect to concurrent writes, but every value
+ * they report was recorded.
+ */
+final class LatencyHistogram {
+
+  /**
+   * The base 2 logarithm of {@link #SUB_BUCKETS}.
+   */
+  private static final int SUB_BUCKET_BITS = 6;
+
+  /**
+   * The number of sub-buckets each power of two is split into.
+   */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Enough buckets for any non-negative {@code long}: values below {@link #SUB_BUCKETS} each get
+   * their own bucket, then each of the remaining powers of two gets {@link #SUB_BUCKETS} more.
+   */
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records one invocation that took the given number of nanoseconds.
+   */
+  void record(long nanos) {
+    if (nanos < 0) {
+      throw new IllegalArgumentException("negative elapsed time");
+    }
+    buckets.incrementAndGet(bucketIndex(nanos));
+    count.increment();
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+  }
+
+  /**
+   * Returns the number of recorded invocations.
+   */
+  long count() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the sum of all recorded latencies.
+   */
+  Duration total() {
+    return Duration.ofNanos(totalNanos.sum());
+  }
+
+  /**
+   * Returns the mean of the recorded latencies, or {@link Duration#ZERO} if there are none.
+   */
+  Duration mean() {
+    long count = count();
+    return (count == 0) ? Duration.ZERO : Duration.ofNanos(totalNanos.sum() / count);
+  }
+
+  /**
+   * Returns the highest recorded latency.
+   */
+  Duration max() {
+    return Duration.ofNanos(maxNanos.get());
+  }
+
+  /**
+   * Returns the latency that the given fraction of invocations did not exceed, or
+   * {@link Duration#ZERO} if there are none.
+   *
+   * <p>The result is the upper end of the bucket holding that invocation, but never more than
+   * {@link #max()}, so it may overstate the true percentile by at most one bucket width.
+   *
+   * @param fraction the fraction of invocations, between 0 and 1; for example 0.99 for the 99th
+   *                 percentile.
+   */
+  Duration percentile(double fraction) {
+    if (!(fraction >= 0 && fraction <= 1)) {
+      throw new IllegalArgumentException("fraction must be between 0 and 1");
+    }
+    // Copy the buckets first, so that the total and the running sum agree even while other threads
+    // are recording.
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return Duration.ZERO;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Duration.ofNanos(Math.min(highestValueInBucket(i), maxNanos.get()));
+      }
+    }
+    return max();
+  }
+
+  /**
+   * Returns the index of the bucket that holds the given non-negative value.
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the highest value that falls into the bucket at the given index.
+   */
+  static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+}
@@ -7,8 +7,18 @@ import java.nio.file.Path;
 /**
  * A utility that wraps an object that should be performance profiled.
  *
- * <p>The profiler aggregates information about profiled method calls, and how long they took. The
- * aggregate information can then be written to a file with {@link #writeData(Writer) writeData}.
+ * <p>The profiler aggregates information about profiled method calls, and how long they took: the
+ * total time spent in each method, and a histogram of how long single calls took, from which the
+ * median and tail latencies are reported. The aggregate information can then be written to a file
+ * with {@link #writeData(Writer) writeData}.
+ *
+ * <p>Besides method timings, the profiler can also keep named {@link #count(String, long)
+ * counters}, for events that are not method calls, such as cache hits, and named
+ * {@link #gauge(String, long) gauges}, for levels that go up and down, such as a concurrency
+ * limit.
+ *
+ * <p>The method timings can also be broken down by thread, by tag and by caller; see
+ * {@link ProfilerDimension}.
  */
 public interface Profiler {
 
@@ -26,6 +36,40 @@ public interface Profiler {
    */
   <T> T wrap(Class<T> klass, T delegate);
 
+  /**
+   * Wraps the given delegate like {@link #wrap(Class, Object)}, and, if the
+   * {@link ProfilerDimension#TAG} breakdown is enabled, also records the time of its profiled
+   * calls under the given tag. For example, a page parser can be tagged with the host of its page,
+   * to show which hosts are slow.
+   *
+   * @param tag the tag to record the calls under; delegates are expected to share a small number
+   *            of tags, since the profiler keeps totals for each. Once a few hundred tags have
+   *            been seen, the calls of objects with new tags are recorded together under
+   *            {@code "(other)"}.
+   */
+  default <T> T wrap(Class<T> klass, T delegate, String tag) {
+    return wrap(klass, delegate);
+  }
+
+  /**
+   * Adds {@code delta} to the counter with the given name. Counters start at zero, and are written
+   * along with the method timings by {@link #writeData(Writer) writeData}.
+   *
+   * @param name  the name of the counter, for example {@code "ResultCache#hits"}.
+   * @param delta the amount to add to the counter.
+   */
+  void count(String name, long delta);
+
+  /**
+   * Sets the gauge with the given name to {@code value}. Gauges are written along with the method
+   * timings by {@link #writeData(Writer) writeData}, with their latest value and the lowest and
+   * highest values they were set to.
+   *
+   * @param name  the name of the gauge, for example {@code "ParallelWebCrawler#concurrency"}.
+   * @param value the current value of the gauge.
+   */
+  void gauge(String name, long value);
+
   /**
    * Formats the profile data as a string and writes it to the given {@link Path}.
    *
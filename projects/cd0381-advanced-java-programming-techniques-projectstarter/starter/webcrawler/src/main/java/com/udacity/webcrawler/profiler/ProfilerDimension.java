@@ -0,0 +1,27 @@
+package com.udacity.webcrawler.profiler;
+
+/**
+ * An optional breakdown of the profiled method timings, which {@link Profiler#writeData(
+ * java.io.Writer) writeData} writes after the per-method totals.
+ */
+public enum ProfilerDimension {
+
+  /**
+   * The total time each thread spent in profiled calls, counting only calls that were not made
+   * from inside another profiled call. Shows whether work was spread evenly across the threads of
+   * a pool.
+   */
+  THREAD,
+
+  /**
+   * The time spent in the calls of each object that was wrapped with a tag, per tag, for up to a
+   * few hundred distinct tags. See {@link Profiler#wrap(Class, Object, String)}.
+   */
+  TAG,
+
+  /**
+   * The time spent in profiled calls made from inside another profiled call on the same thread,
+   * per caller. Shows how the time of a call is made up of the calls it makes.
+   */
+  CALLER
+}
@@ -2,6 +2,7 @@ package com.udacity.webcrawler.profiler;
 
 import java.io.BufferedWriter;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -12,7 +13,13 @@ import java.io.Writer;
 import java.nio.file.Path;
 import java.time.Clock;
 import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 
 import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
 
@@ -21,35 +28,187 @@ import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
  */
 final class ProfilerImpl implements Profiler {
 
-  private final Clock clock;
+  /**
+   * The most distinct tags the profiler keeps separate totals for. Objects wrapped with any later
+   * tag are recorded under {@link #OTHER_TAG}, so a crawl that visits many hosts does not keep a
+   * dispatch table and a set of totals for each of them.
+   */
+  static final int MAX_TAGS = 256;
+
+  /**
+   * The tag that the calls of objects wrapped with a tag beyond the first {@link #MAX_TAGS} are
+   * recorded under.
+   */
+  static final String OTHER_TAG = "(other)";
+
+  private final LongSupplier ticker;
+  private final boolean tagged;
+  private final CallTracker tracker;
   private final ProfilingState profilingState = new ProfilingState();
+
+  /**
+   * The dispatch table of each interface, delegate class and tag that has been wrapped, so that
+   * wrapping another delegate of the same class, such as one {@link
+   * com.udacity.webcrawler.parser.PageParser} per page, does not look up its methods again.
+   */
+  private final Map<List<?>, Map<Method, ProfilingMethodInterceptor.Dispatch>> dispatchTables =
+      new ConcurrentHashMap<>();
+
+  /**
+   * The tags that have their own totals, at most {@link #MAX_TAGS}.
+   */
+  private final Set<String> tags = ConcurrentHashMap.newKeySet();
   private final ZonedDateTime startTime;
 
+  /**
+   * Creates a profiler that times method calls with {@link System#nanoTime()}.
+   *
+   * @param clock the clock that gives the start time of the run.
+   */
   @Inject
   ProfilerImpl(Clock clock) {
-    this.clock = Objects.requireNonNull(clock);
-    this.startTime = ZonedDateTime.now(clock);
+    this(clock, System::nanoTime);
+  }
+
+  /**
+   * Creates a profiler that times method calls with the given ticker, without any
+   * {@link ProfilerDimension}s.
+   *
+   * @param clock  the clock that gives the start time of the run.
+   * @param ticker returns the current time in nanoseconds.
+   */
+  ProfilerImpl(Clock clock, LongSupplier ticker) {
+    this(clock, ticker, Set.of());
+  }
+
+  /**
+   * Creates a profiler that times method calls with the given ticker, and breaks them down by the
+   * given dimensions.
+   *
+   * @param clock      the clock that gives the start time of the run.
+   * @param ticker     returns the current time in nanoseconds.
+   * @param dimensions the breakdowns to record along with the method timings.
+   */
+  ProfilerImpl(Clock clock, LongSupplier ticker, Set<ProfilerDimension> dimensions) {
+    this.ticker = Objects.requireNonNull(ticker);
+    this.startTime = ZonedDateTime.now(Objects.requireNonNull(clock));
+    this.tagged = dimensions.contains(ProfilerDimension.TAG);
+    boolean threads = dimensions.contains(ProfilerDimension.THREAD);
+    boolean callers = dimensions.contains(ProfilerDimension.CALLER);
+    this.tracker = (threads || callers) ? new CallTracker(profilingState, threads, callers) : null;
   }
 
   @Override
   public <T> T wrap(Class<T> klass, T delegate) {
     Objects.requireNonNull(klass);
+    Objects.requireNonNull(delegate);
 
-    Boolean isProfiled = false;
-    // Search for method with the @Profiled annotation
-    for (Method method : klass.getMethods())
-      if (method.isAnnotationPresent(Profiled.class)) {
-        isProfiled = true;
-        break;
-      }
+    return newProxy(klass, delegate, dispatchTable(klass, delegate.getClass()));
+  }
+
+  @Override
+  public <T> T wrap(Class<T> klass, T delegate, String tag) {
+    if (!tagged) {
+      return wrap(klass, delegate);
+    }
+    Objects.requireNonNull(klass);
+    Objects.requireNonNull(delegate);
+    String boundedTag = boundedTag(Objects.requireNonNull(tag));
 
-    if (!isProfiled)
-      throw new IllegalArgumentException();
+    Map<Method, ProfilingMethodInterceptor.Dispatch> untagged =
+        dispatchTable(klass, delegate.getClass());
+    Map<Method, ProfilingMethodInterceptor.Dispatch> dispatchTable =
+        dispatchTables.computeIfAbsent(
+            List.of(klass, delegate.getClass(), boundedTag),
+            k -> {
+              Map<Method, ProfilingMethodInterceptor.Dispatch> withTag = new HashMap<>();
+              untagged.forEach(
+                  (method, d) -> withTag.put(method, d.withTag(profilingState, boundedTag)));
+              return Map.copyOf(withTag);
+            });
+    return newProxy(klass, delegate, dispatchTable);
+  }
+
+  /**
+   * Returns the given tag if it has, or can still get, its own totals, and {@link #OTHER_TAG}
+   * otherwise.
+   */
+  private String boundedTag(String tag) {
+    if (tags.contains(tag)) {
+      return tag;
+    }
+    synchronized (tags) {
+      if (tags.size() < MAX_TAGS) {
+        tags.add(tag);
+        return tag;
+      }
+    }
+    return OTHER_TAG;
+  }
 
+  private <T> T newProxy(
+      Class<T> klass, T delegate, Map<Method, ProfilingMethodInterceptor.Dispatch> dispatchTable) {
     return (T) Proxy.newProxyInstance(
         klass.getClassLoader(),
         new Class<?>[]{klass},
-        new ProfilingMethodInterceptor(clock, delegate, profilingState));
+        new ProfilingMethodInterceptor(ticker, delegate, dispatchTable, tracker));
+  }
+
+  /**
+   * Returns the dispatch table of the given interface and delegate class, creating it on first use.
+   */
+  private Map<Method, ProfilingMethodInterceptor.Dispatch> dispatchTable(
+      Class<?> klass, Class<?> delegateClass) {
+    return dispatchTables.computeIfAbsent(
+        List.of(klass, delegateClass), k -> createDispatchTable(klass, delegateClass));
+  }
+
+  /**
+   * Looks up how to call, and where to record, each method of the given interface when it is
+   * implemented by the given class.
+   *
+   * @throws IllegalArgumentException if the interface has no {@link Profiled} methods.
+   */
+  private Map<Method, ProfilingMethodInterceptor.Dispatch> createDispatchTable(
+      Class<?> klass, Class<?> delegateClass) {
+    Map<Method, ProfilingMethodInterceptor.Dispatch> dispatchTable = new HashMap<>();
+    boolean profiled = false;
+    for (Method method : klass.getMethods()) {
+      // Static interface methods are never called through a proxy.
+      if (Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      // Interfaces that are not public can still be proxied, but their methods can only be called
+      // from this package once they are made accessible.
+      if (!Modifier.isPublic(klass.getModifiers())) {
+        method.trySetAccessible();
+      }
+      String key = null;
+      LatencyHistogram histogram = null;
+      if (method.isAnnotationPresent(Profiled.class)) {
+        profiled = true;
+        key = ProfilingState.formatMethodCall(delegateClass, method);
+        histogram = profilingState.histogram(delegateClass, method);
+      }
+      dispatchTable.put(
+          method,
+          new ProfilingMethodInterceptor.Dispatch(method, key, histogram, null));
+    }
+
+    if (!profiled)
+      throw new IllegalArgumentException(klass.getName() + " has no @Profiled methods");
+
+    return Map.copyOf(dispatchTable);
+  }
+
+  @Override
+  public void count(String name, long delta) {
+    profilingState.count(name, delta);
+  }
+
+  @Override
+  public void gauge(String name, long value) {
+    profilingState.gauge(name, value);
   }
 
   @Override
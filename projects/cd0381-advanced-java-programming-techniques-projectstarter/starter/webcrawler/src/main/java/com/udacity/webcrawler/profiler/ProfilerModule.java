@@ -5,6 +5,7 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 import java.time.Clock;
+import java.util.Set;
 
 /**
  * Guice dependency injection module that installs a {@link Profiler} singleton.
@@ -12,9 +13,26 @@ import java.time.Clock;
  * <p>Requires a {@link java.time.Clock} to already be bound.
  */
 public final class ProfilerModule extends AbstractModule {
+
+  private final Set<ProfilerDimension> dimensions;
+
+  /**
+   * Installs a profiler that records only the method timings.
+   */
+  public ProfilerModule() {
+    this(Set.of());
+  }
+
+  /**
+   * Installs a profiler that breaks the method timings down by the given dimensions.
+   */
+  public ProfilerModule(Set<ProfilerDimension> dimensions) {
+    this.dimensions = Set.copyOf(dimensions);
+  }
+
   @Provides
   @Singleton
   Profiler provideProfiler(Clock clock) {
-    return new ProfilerImpl(clock);
+    return new ProfilerImpl(clock, System::nanoTime, dimensions);
   }
 }
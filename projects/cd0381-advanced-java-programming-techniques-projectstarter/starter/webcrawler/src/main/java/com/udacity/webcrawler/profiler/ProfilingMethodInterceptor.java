@@ -3,46 +3,120 @@ package com.udacity.webcrawler.profiler;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.time.Clock;
-import java.time.Duration;
-import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.LongSupplier;
 
 /**
  * A method interceptor that checks whether {@link Method}s are annotated with the {@link Profiled}
  * annotation. If they are, the method interceptor records how long the method invocation took.
+ *
+ * <p>The profiled methods, and the histograms their invocations are recorded in, are looked up
+ * once per proxied interface and target class, in a dispatch table that every proxy for them
+ * shares. Timing an invocation then costs one map lookup, two reads of the ticker and a few atomic
+ * increments on top of the reflective call, without any annotation lookup, string formatting or
+ * allocation. The optional {@link ProfilerDimension}s add a striped counter for the tag, and a
+ * {@link CallTracker} entry.
  */
 final class ProfilingMethodInterceptor implements InvocationHandler {
 
-  private final Clock clock;
+  private final LongSupplier ticker;
   private final Object target;
-  private final ProfilingState profilingState;
+  private final Map<Method, Dispatch> dispatches;
+  private final CallTracker tracker;
 
-  ProfilingMethodInterceptor(Clock clock, Object target, ProfilingState profilingState) {
-    this.clock = Objects.requireNonNull(clock);
+  /**
+   * @param ticker        returns the current time in nanoseconds, such as
+   *                      {@link System#nanoTime()}.
+   * @param target        the object whose methods are invoked.
+   * @param dispatchTable how to call each method of the proxied interface.
+   * @param tracker       the tracker of nested calls, or null if no dimension needs it.
+   */
+  ProfilingMethodInterceptor(
+      LongSupplier ticker,
+      Object target,
+      Map<Method, Dispatch> dispatchTable,
+      CallTracker tracker) {
+    this.ticker = Objects.requireNonNull(ticker);
     this.target = Objects.requireNonNull(target);
-    this.profilingState = Objects.requireNonNull(profilingState);
+    this.dispatches = Objects.requireNonNull(dispatchTable);
+    this.tracker = tracker;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args)
       throws Throwable {
-    Instant startTime = clock.instant();
-
-    if (method.getAnnotation(Profiled.class) != null) {
-      try {
-        method.invoke(target, args);
-      } catch (InvocationTargetException e) {
-        throw e.getTargetException();
-      } catch (IllegalArgumentException e) {
-        throw new RuntimeException(e);
-      } finally {
-        profilingState.record(target.getClass(),
-            method,
-            Duration.between(startTime, clock.instant()));
+    Dispatch dispatch = dispatches.get(method);
+    if (dispatch == null) {
+      return invokeTarget(method, args);
+    }
+    if (dispatch.histogram == null) {
+      return invokeTarget(dispatch.method, args);
+    }
+    CallTracker.Call call = (tracker == null) ? null : tracker.enter(dispatch.key);
+    long startTime = ticker.getAsLong();
+    try {
+      return invokeTarget(dispatch.method, args);
+    } finally {
+      long elapsed = Math.max(0, ticker.getAsLong() - startTime);
+      dispatch.histogram.record(elapsed);
+      if (dispatch.tagTotals != null) {
+        dispatch.tagTotals.record(elapsed);
       }
+      if (call != null) {
+        tracker.exit(call, elapsed);
+      }
+    }
+  }
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
     }
+  }
+
+  /**
+   * How to call one method of the proxied interface, and where to record its invocations.
+   */
+  static final class Dispatch {
+    /**
+     * The method, made accessible if its interface is not public.
+     */
+    private final Method method;
 
-    return method.invoke(target, args);
+    /**
+     * The key of the method, from {@link ProfilingState#formatMethodCall(Class, Method)}.
+     */
+    private final String key;
+
+    /**
+     * The histogram to record the method's invocations in, or null if it is not profiled.
+     */
+    private final LatencyHistogram histogram;
+
+    /**
+     * The totals of the proxy's tag to also record the invocations in, or null if it has none.
+     */
+    private final CallTotals tagTotals;
+
+    Dispatch(Method method, String key, LatencyHistogram histogram, CallTotals tagTotals) {
+      this.method = Objects.requireNonNull(method);
+      this.key = key;
+      this.histogram = histogram;
+      this.tagTotals = tagTotals;
+    }
+
+    /**
+     * Returns a copy of this dispatch that also records the method's invocations in the given tag
+     * totals, or this dispatch if the method is not profiled.
+     */
+    Dispatch withTag(ProfilingState profilingState, String tag) {
+      if (histogram == null) {
+        return this;
+      }
+      return new Dispatch(method, key, histogram, profilingState.tagTotals(key, tag));
+    }
   }
 }
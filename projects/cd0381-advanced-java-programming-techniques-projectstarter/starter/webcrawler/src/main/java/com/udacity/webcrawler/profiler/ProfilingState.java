@@ -4,17 +4,41 @@ import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * Helper class that records method performance data from the method interceptor.
+ *
+ * <p>Every piece of data is kept in atomic or striped counters, so {@link #write(Writer)} can take
+ * a snapshot at any time, such as for the live metrics endpoint, without holding up the threads
+ * that record calls. The snapshot is not atomic as a whole: calls that finish while it is being
+ * written may show up in some lines and not in others.
  */
 final class ProfilingState {
-  private final Map<String, Duration> data = new ConcurrentHashMap<>();
+  private final Map<String, LatencyHistogram> data = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+  /**
+   * The {@link ProfilerDimension#THREAD} and {@link ProfilerDimension#TAG} totals, by the label
+   * they are written with.
+   */
+  private final Map<String, CallTotals> breakdown = new ConcurrentHashMap<>();
+
+  /**
+   * The {@link ProfilerDimension#CALLER} totals, by the key of the calling method and then by the
+   * key of the called method, so that recording a call does not have to build a label.
+   */
+  private final Map<String, Map<String, CallTotals>> callers = new ConcurrentHashMap<>();
 
   /**
    * Records the given method invocation data.
@@ -24,14 +48,86 @@ final class ProfilingState {
    * @param elapsed      the amount of time that passed while the method was called.
    */
   void record(Class<?> callingClass, Method method, Duration elapsed) {
-    Objects.requireNonNull(callingClass);
-    Objects.requireNonNull(method);
     Objects.requireNonNull(elapsed);
     if (elapsed.isNegative()) {
       throw new IllegalArgumentException("negative elapsed time");
     }
-    String key = formatMethodCall(callingClass, method);
-    data.compute(key, (k, v) -> (v == null) ? elapsed : v.plus(elapsed));
+    histogram(callingClass, method).record(elapsed.toNanos());
+  }
+
+  /**
+   * Returns the histogram that invocations of the given method are recorded in, creating it if
+   * needed.
+   *
+   * <p>The method interceptor looks up the histogram of each profiled method once, when the proxy
+   * is created, so that recording an invocation does not have to format the method's key or look
+   * it up again.
+   *
+   * @param callingClass the Java class of the object whose method is invoked.
+   * @param method       the method that is invoked.
+   */
+  LatencyHistogram histogram(Class<?> callingClass, Method method) {
+    Objects.requireNonNull(callingClass);
+    Objects.requireNonNull(method);
+    return data.computeIfAbsent(
+        formatMethodCall(callingClass, method), k -> new LatencyHistogram());
+  }
+
+  /**
+   * Returns the totals of the calls to the given method of objects wrapped with the given tag.
+   *
+   * @param methodKey the key of the method, from {@link #formatMethodCall(Class, Method)}.
+   */
+  CallTotals tagTotals(String methodKey, String tag) {
+    return breakdown.computeIfAbsent(
+        Objects.requireNonNull(methodKey) + " [" + Objects.requireNonNull(tag) + "]",
+        k -> new CallTotals());
+  }
+
+  /**
+   * Returns the totals of the outermost profiled calls made by the thread with the given id.
+   *
+   * <p>Threads are told apart by id, since names are not unique: virtual threads have none, and a
+   * pool names the threads it starts to replace idle ones the same way. The name is only written
+   * as part of the label, as it was when the thread's first call returned.
+   */
+  CallTotals threadTotals(long threadId, String threadName) {
+    String label = "Thread #" + threadId;
+    if (!threadName.isEmpty()) {
+      label += " (" + threadName + ")";
+    }
+    return breakdown.computeIfAbsent(label, k -> new CallTotals());
+  }
+
+  /**
+   * Returns the totals of the calls to one profiled method made from inside another.
+   *
+   * @param callerKey the key of the method that made the calls.
+   * @param calleeKey the key of the method that was called.
+   */
+  CallTotals callerTotals(String callerKey, String calleeKey) {
+    Map<String, CallTotals> callees = callers.get(callerKey);
+    if (callees == null) {
+      callees = callers.computeIfAbsent(callerKey, k -> new ConcurrentHashMap<>());
+    }
+    CallTotals totals = callees.get(calleeKey);
+    return (totals != null) ? totals : callees.computeIfAbsent(calleeKey, k -> new CallTotals());
+  }
+
+  /**
+   * Adds {@code delta} to the named counter.
+   */
+  void count(String name, long delta) {
+    Objects.requireNonNull(name);
+    counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+  }
+
+  /**
+   * Sets the named gauge to {@code value}.
+   */
+  void gauge(String name, long value) {
+    Objects.requireNonNull(name);
+    gauges.computeIfAbsent(name, k -> new Gauge()).set(value);
   }
 
   /**
@@ -41,14 +137,46 @@ final class ProfilingState {
    * {@link #record(Class, Method, Duration) record} is called three times for the same method
    * {@code M()}, with each invocation taking 1 second. The total {@link Duration} reported by
    * this {@code write()} method for {@code M()} should be 3 seconds.
+   *
+   * <p>Each method's total is followed by its number of invocations and the mean, median, 90th and
+   * 99th percentile, and highest latency of a single invocation, in milliseconds:
+   * {@code "C#M took 0m 3s 0ms (count 3, mean 1000.000ms, p50 1000.000ms, ...)"}.
+   *
+   * <p>Methods that were wrapped but never called are left out.
+   *
+   * <p>The breakdowns of the enabled {@link ProfilerDimension}s follow the method data, with the
+   * number, mean and longest of the calls: {@code "C#M [tag] took ..."} for
+   * {@link ProfilerDimension#TAG}, {@code "Thread #id (name) took ..."} for
+   * {@link ProfilerDimension#THREAD}, and {@code "C#M > D#N took ..."} for the calls to
+   * {@code D#N} made by {@code C#M}, for {@link ProfilerDimension#CALLER}.
+   *
+   * <p>Counters are written after the method data, one per line, as {@code "name: value"}, and
+   * gauges after the counters, as {@code "name: value (min lowest, max highest)"}.
    */
   void write(Writer writer) throws IOException {
     List<String> entries =
         data.entrySet()
             .stream()
+            .filter(e -> e.getValue().count() > 0)
             .sorted(Map.Entry.comparingByKey())
-            .map(e -> e.getKey() + " took " + formatDuration(e.getValue()) + System.lineSeparator())
-            .collect(Collectors.toList());
+            .map(e ->
+                e.getKey() + " took " + formatLatencies(e.getValue()) + System.lineSeparator())
+            .collect(Collectors.toCollection(ArrayList::new));
+    Map<String, CallTotals> totals = new TreeMap<>(breakdown);
+    callers.forEach((caller, callees) ->
+        callees.forEach((callee, t) -> totals.put(caller + " > " + callee, t)));
+    totals.forEach((label, t) ->
+        entries.add(label + " took " + formatTotals(t) + System.lineSeparator()));
+    counters.entrySet()
+        .stream()
+        .sorted(Map.Entry.comparingByKey())
+        .map(e -> e.getKey() + ": " + e.getValue().sum() + System.lineSeparator())
+        .forEach(entries::add);
+    gauges.entrySet()
+        .stream()
+        .sorted(Map.Entry.comparingByKey())
+        .map(e -> e.getKey() + ": " + e.getValue() + System.lineSeparator())
+        .forEach(entries::add);
 
     // We have to use a for-loop here instead of a Stream API method because Writer#write() can
     // throw an IOException, and lambdas are not allowed to throw checked exceptions.
@@ -64,10 +192,44 @@ final class ProfilingState {
    * @param method       the Java method that was invoked.
    * @return a string representation of the method call.
    */
-  private static String formatMethodCall(Class<?> callingClass, Method method) {
+  static String formatMethodCall(Class<?> callingClass, Method method) {
     return String.format("%s#%s", callingClass.getName(), method.getName());
   }
 
+  /**
+   * Formats the total and the distribution of the latencies in the given histogram.
+   */
+  private static String formatLatencies(LatencyHistogram histogram) {
+    return String.format(
+        "%s (count %d, mean %s, p50 %s, p90 %s, p99 %s, max %s)",
+        formatDuration(histogram.total()),
+        histogram.count(),
+        formatMillis(histogram.mean()),
+        formatMillis(histogram.percentile(0.50)),
+        formatMillis(histogram.percentile(0.90)),
+        formatMillis(histogram.percentile(0.99)),
+        formatMillis(histogram.max()));
+  }
+
+  /**
+   * Formats the total, number, mean and longest of the given calls.
+   */
+  private static String formatTotals(CallTotals totals) {
+    return String.format(
+        "%s (count %d, mean %s, max %s)",
+        formatDuration(totals.total()),
+        totals.count(),
+        formatMillis(totals.mean()),
+        formatMillis(totals.max()));
+  }
+
+  /**
+   * Formats the latency of a single invocation as fractional milliseconds.
+   */
+  private static String formatMillis(Duration duration) {
+    return String.format(Locale.ROOT, "%.3fms", duration.toNanos() / 1e6);
+  }
+
   /**
    * Formats the given {@link Duration} for writing to a text file.
    */
@@ -75,4 +237,28 @@ final class ProfilingState {
     return String.format(
         "%sm %ss %sms", duration.toMinutes(), duration.toSecondsPart(), duration.toMillisPart());
   }
+
+  /**
+   * The latest, lowest and highest values of a gauge.
+   *
+   * <p>The values are updated without locking, so that writing the data while a crawl is running
+   * never holds up a thread that sets the gauge. A gauge that is written while it is being set may
+   * show the new lowest or highest value next to the previous latest value.
+   */
+  private static final class Gauge {
+    private volatile long value;
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    void set(long value) {
+      this.value = value;
+      min.accumulate(value);
+      max.accumulate(value);
+    }
+
+    @Override
+    public String toString() {
+      return value + " (min " + min.get() + ", max " + max.get() + ")";
+    }
+  }
 }
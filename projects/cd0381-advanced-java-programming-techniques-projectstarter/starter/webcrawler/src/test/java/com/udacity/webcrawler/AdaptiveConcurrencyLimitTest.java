@@ -0,0 +1,119 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class AdaptiveConcurrencyLimitTest {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final AtomicLong queueDepth = new AtomicLong();
+  private final AtomicLong ticker = new AtomicLong();
+  private double cpuLoad = 0;
+  private int inFlight = 0;
+
+  private AdaptiveConcurrencyLimit newLimit(int initialLimit, int maxLimit) {
+    return new AdaptiveConcurrencyLimit(
+        initialLimit, maxLimit, queueDepth::get, () -> cpuLoad, ticker::get, new NoOpProfiler());
+  }
+
+  @Test
+  public void growsWhileDownloadsAreFastAndPagesAreQueued() {
+    AdaptiveConcurrencyLimit limit = newLimit(2, 10);
+    queueDepth.set(100);
+
+    runFullyLoaded(limit, 200, FAST);
+
+    assertThat(limit.limit()).isEqualTo(10);
+  }
+
+  @Test
+  public void doesNotGrowWithoutQueuedPages() {
+    AdaptiveConcurrencyLimit limit = newLimit(2, 10);
+
+    runFullyLoaded(limit, 200, FAST);
+
+    assertThat(limit.limit()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotGrowWhileCpuIsSaturated() {
+    AdaptiveConcurrencyLimit limit = newLimit(2, 10);
+    queueDepth.set(100);
+    cpuLoad = 0.95;
+
+    runFullyLoaded(limit, 200, FAST);
+
+    assertThat(limit.limit()).isEqualTo(2);
+  }
+
+  @Test
+  public void backsOffOncePerWindowWhenDownloadsSlowDown() {
+    AdaptiveConcurrencyLimit limit = newLimit(8, 16);
+    runFullyLoaded(limit, 8, FAST);
+    assertThat(limit.limit()).isEqualTo(8);
+
+    runFullyLoaded(limit, 1, SLOW);
+    assertThat(limit.limit()).isEqualTo(6);
+
+    // These slow downloads were already in flight at the old limit, so they do not count.
+    runFullyLoaded(limit, 3, SLOW);
+    assertThat(limit.limit()).isEqualTo(6);
+  }
+
+  @Test
+  public void oneUnusuallyFastDownloadDoesNotCollapseTheLimit() {
+    AdaptiveConcurrencyLimit limit = newLimit(8, 16);
+    queueDepth.set(100);
+
+    // For example, a download that failed right away and was still timed.
+    runFullyLoaded(limit, 1, TimeUnit.MICROSECONDS.toNanos(5));
+    runFullyLoaded(limit, 100, FAST);
+
+    assertThat(limit.limit()).isAtLeast(8);
+  }
+
+  @Test
+  public void pagesThatWereNotDownloadedDoNotMoveTheLimit() {
+    AdaptiveConcurrencyLimit limit = newLimit(8, 16);
+    queueDepth.set(100);
+    runFullyLoaded(limit, 8, FAST);
+
+    runFullyLoaded(limit, 100, -1);
+
+    assertThat(limit.limit()).isEqualTo(8);
+  }
+
+  @Test
+  public void baselineFollowsHostsThatStaySlower() {
+    AdaptiveConcurrencyLimit limit = newLimit(8, 16);
+    queueDepth.set(100);
+    runFullyLoaded(limit, 32, FAST);
+    runFullyLoaded(limit, 32, SLOW);
+    int backedOff = limit.limit();
+    assertThat(backedOff).isLessThan(8);
+
+    // Once the slow downloads fill the window, they are the new normal, and the limit grows again.
+    runFullyLoaded(limit, 100, SLOW);
+    assertThat(limit.limit()).isGreaterThan(backedOff);
+  }
+
+  /**
+   * Keeps every download slot in use for {@code downloads} downloads, each taking {@code latency}.
+   */
+  private void runFullyLoaded(AdaptiveConcurrencyLimit limit, int downloads, long latency) {
+    for (int i = 0; i < downloads; i++) {
+      while (inFlight < limit.limit()) {
+        limit.acquire();
+        inFlight++;
+      }
+      ticker.addAndGet(Math.max(0, latency));
+      limit.release(latency);
+      inFlight--;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class BloomFilterVisitedUrlsTest {
+
+  @Test
+  public void neverForgetsVisitedUrls() {
+    BloomFilterVisitedUrls visitedUrls = new BloomFilterVisitedUrls(10_000, 0.01);
+    int added = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (visitedUrls.add("http://example.com/page-" + i)) {
+        added++;
+      }
+    }
+    for (int i = 0; i < 10_000; i++) {
+      assertThat(visitedUrls.add("http://example.com/page-" + i)).isFalse();
+    }
+
+    assertThat(visitedUrls.size()).isEqualTo(added);
+    // Some new URLs may have been false positives, but only a small fraction of them.
+    assertThat(added).isGreaterThan(9_800);
+  }
+
+  @Test
+  public void falsePositiveRateIsNearTarget() {
+    BloomFilterVisitedUrls visitedUrls = new BloomFilterVisitedUrls(100_000, 0.01);
+    for (int i = 0; i < 100_000; i++) {
+      visitedUrls.add("http://example.com/visited-" + i);
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (!visitedUrls.add("http://example.com/new-" + i)) {
+        falsePositives++;
+      }
+    }
+
+    // Every new URL is also added, which makes the filter fuller as it goes, so allow some slack.
+    assertThat(falsePositives).isLessThan(250);
+    assertThat(visitedUrls.hashCount()).isEqualTo(7);
+    assertThat(visitedUrls.bitCount()).isAtLeast(958_506L);
+  }
+}
@@ -0,0 +1,64 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class FingerprintVisitedUrlsTest {
+
+  @Test
+  public void normalizesUrls() {
+    assertThat(UrlFingerprint.normalize("HTTP://Example.COM:80/Path?Q=1#top"))
+        .isEqualTo("http://example.com/Path?Q=1");
+    assertThat(UrlFingerprint.normalize("https://user:Pw@Example.com:443"))
+        .isEqualTo("https://user:Pw@example.com/");
+    assertThat(UrlFingerprint.normalize("https://example.com:8443/a"))
+        .isEqualTo("https://example.com:8443/a");
+    assertThat(UrlFingerprint.normalize("http://[::1]:80/")).isEqualTo("http://[::1]/");
+    assertThat(UrlFingerprint.normalize("FILE:///tmp/Page.html")).isEqualTo("file:///tmp/Page.html");
+    assertThat(UrlFingerprint.normalize("not a url#fragment")).isEqualTo("not a url");
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void addsEachNormalizedUrlOnce(boolean offHeap) {
+    VisitedUrls visitedUrls = new FingerprintVisitedUrls(offHeap);
+
+    assertThat(visitedUrls.add("http://example.com/")).isTrue();
+    assertThat(visitedUrls.add("http://example.com/")).isFalse();
+    assertThat(visitedUrls.add("HTTP://EXAMPLE.com:80#fragment")).isFalse();
+    assertThat(visitedUrls.add("http://example.com/other")).isTrue();
+    assertThat(visitedUrls.size()).isEqualTo(2);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  public void concurrentAddsGrowTable(boolean offHeap) throws Exception {
+    VisitedUrls visitedUrls = new FingerprintVisitedUrls(offHeap);
+    AtomicInteger added = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    // Every URL is added by two threads, but only one of them may win.
+    for (int thread = 0; thread < 8; thread++) {
+      int first = (thread / 2) * 50_000;
+      executor.execute(() -> {
+        for (int i = first; i < first + 50_000; i++) {
+          if (visitedUrls.add("http://example.com/page-" + i)) {
+            added.incrementAndGet();
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    assertThat(added.get()).isEqualTo(200_000);
+    assertThat(visitedUrls.size()).isEqualTo(200_000);
+  }
+}
@@ -0,0 +1,92 @@
+package com.udacity.webcrawler;
+
+import com.udacity.webcrawler.parser.CancellationToken;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class HostSchedulerTest {
+
+  @Test
+  public void roundRobinsAcrossHosts() throws Exception {
+    HostScheduler scheduler = new HostScheduler(0, Duration.ZERO);
+    scheduler.add("http://a.com/1");
+    scheduler.add("http://a.com/2");
+    scheduler.add("http://a.com/3");
+    scheduler.add("http://B.com/1");
+    scheduler.add("http://c.com/1");
+
+    assertThat(scheduler.next()).isEqualTo("http://a.com/1");
+    assertThat(scheduler.next()).isEqualTo("http://B.com/1");
+    assertThat(scheduler.next()).isEqualTo("http://c.com/1");
+    assertThat(scheduler.next()).isEqualTo("http://a.com/2");
+    assertThat(scheduler.next()).isEqualTo("http://a.com/3");
+    assertThat(scheduler.next()).isNull();
+  }
+
+  @Test
+  public void skipsHostsAtTheirLimit() throws Exception {
+    HostScheduler scheduler = new HostScheduler(1, Duration.ZERO);
+    scheduler.add("http://a.com/1");
+    scheduler.add("http://a.com/2");
+    scheduler.add("http://b.com/1");
+    scheduler.add("http://b.com/2");
+
+    String first = scheduler.next();
+    String second = scheduler.next();
+    assertThat(first).isEqualTo("http://a.com/1");
+    assertThat(second).isEqualTo("http://b.com/1");
+
+    // Both hosts are busy until one of them is released.
+    scheduler.release(second);
+    assertThat(scheduler.next()).isEqualTo("http://b.com/2");
+    scheduler.release(first);
+    assertThat(scheduler.next()).isEqualTo("http://a.com/2");
+  }
+
+  @Test
+  public void waitsBetweenRequestsToTheSameHost() throws Exception {
+    HostScheduler scheduler = new HostScheduler(0, Duration.ofMillis(100));
+    scheduler.add("http://a.com/1");
+    scheduler.add("http://a.com/2");
+
+    long start = System.nanoTime();
+    scheduler.release(scheduler.next());
+    scheduler.release(scheduler.next());
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isAtLeast(Duration.ofMillis(100));
+  }
+
+  @Test
+  public void returnsNullOnceCancelled() throws Exception {
+    HostScheduler scheduler = new HostScheduler(0, Duration.ofSeconds(30));
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(Clock.systemUTC(), Instant.now().plusMillis(200));
+    scheduler.cancelOn(cancellation);
+    scheduler.add("http://a.com/1");
+    scheduler.add("http://a.com/2");
+    scheduler.add("http://a.com/3");
+
+    long start = System.nanoTime();
+    String first = scheduler.next();
+    // The second URL of the host is not due for another 30 seconds, but the deadline wakes us up.
+    assertThat(scheduler.next()).isNull();
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+
+    scheduler.release(first);
+    scheduler.add("http://b.com/1");
+    assertThat(scheduler.next()).isNull();
+  }
+
+  @Test
+  public void extractsHost() {
+    assertThat(HostScheduler.hostOf("https://User@Example.com:8080/a?b#c"))
+        .isEqualTo("example.com:8080");
+    assertThat(HostScheduler.hostOf("http://example.com")).isEqualTo("example.com");
+    assertThat(HostScheduler.hostOf("file:///tmp/page.html")).isEmpty();
+  }
+}
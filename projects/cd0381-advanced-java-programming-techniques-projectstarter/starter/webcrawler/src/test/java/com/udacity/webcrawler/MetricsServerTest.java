@@ -0,0 +1,98 @@
+package com.udacity.webcrawler;
+
+import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlResult;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class MetricsServerTest {
+  private final Profiler profiler =
+      Guice.createInjector(
+          new ProfilerModule(), binder -> binder.bind(Clock.class).toInstance(Clock.systemUTC()))
+          .getInstance(Profiler.class);
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final HttpClient client = HttpClient.newHttpClient();
+  private MetricsServer server;
+
+  @AfterEach
+  public void stopServer() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  public void servesProgressAndProfileData() throws Exception {
+    server = startServer();
+    profiler.count("ResultCache#hits", 3);
+    profiler.gauge("WebCrawler#frontierSize", 7);
+
+    nanoTime.set(Duration.ofSeconds(1).toNanos());
+    assertThat(server.onProgress(snapshot(10))).isTrue();
+    nanoTime.set(Duration.ofMillis(3500).toNanos());
+    assertThat(server.onProgress(snapshot(15))).isTrue();
+
+    HttpResponse<String> response = request("GET");
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type").orElse(""))
+        .isEqualTo("text/plain; charset=utf-8");
+    assertThat(response.body()).contains("WebCrawler#urlsVisited: 15");
+    // 5 URLs in the 2.5 seconds since the previous snapshot.
+    assertThat(response.body()).contains("WebCrawler#pagesPerSecond: 2.000");
+    assertThat(response.body()).contains("ResultCache#hits: 3");
+    assertThat(response.body()).contains("WebCrawler#frontierSize: 7 (min 7, max 7)");
+  }
+
+  @Test
+  public void servesEveryRequestWithLatestData() throws Exception {
+    server = startServer();
+    assertThat(request("GET").body()).contains("WebCrawler#urlsVisited: 0");
+
+    nanoTime.set(Duration.ofSeconds(2).toNanos());
+    server.onProgress(snapshot(4));
+    profiler.count("ResultCache#misses", 1);
+
+    String body = request("GET").body();
+    assertThat(body).contains("WebCrawler#urlsVisited: 4");
+    assertThat(body).contains("WebCrawler#pagesPerSecond: 2.000");
+    assertThat(body).contains("ResultCache#misses: 1");
+  }
+
+  @Test
+  public void rejectsOtherMethods() throws Exception {
+    server = startServer();
+    assertThat(request("POST").statusCode()).isEqualTo(405);
+  }
+
+  private MetricsServer startServer() throws IOException {
+    return new MetricsServer(
+        profiler, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), nanoTime::get);
+  }
+
+  private HttpResponse<String> request(String method) throws Exception {
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/metrics"))
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static CrawlResult snapshot(int urlsVisited) {
+    return new CrawlResult.Builder().setUrlsVisited(urlsVisited).build();
+  }
+}
@@ -1,10 +1,13 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.nio.file.Paths;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -19,4 +22,28 @@ public final class ParallelWebCrawlerTest {
         .injectMembers(this);
     assertThat(parallelWebCrawler.getMaxParallelism()).isGreaterThan(1);
   }
+
+  @Test
+  public void testAdaptiveConcurrency() {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setAdaptiveConcurrency(true)
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .addStartPages(
+                Paths.get(System.getProperty("testDataDir"), "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+
+    CrawlResult result = parallelWebCrawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
 }
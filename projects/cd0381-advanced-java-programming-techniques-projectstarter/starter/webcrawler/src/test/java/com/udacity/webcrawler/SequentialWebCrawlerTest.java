@@ -2,9 +2,14 @@ package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
+import com.udacity.webcrawler.profiler.Profiler;
+import com.udacity.webcrawler.profiler.ProfilerModule;
+import com.udacity.webcrawler.testing.CloseableStringWriter;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -12,6 +17,14 @@ public final class SequentialWebCrawlerTest {
   @Inject
   private SequentialWebCrawler sequentialWebCrawler;
 
+  @Inject
+  private WebCrawler crawler;
+
+  @Inject
+  private Profiler profiler;
+
+  private static final String DATA_DIR = System.getProperty("testDataDir");
+
   @Test
   public void testMaxParallelism() {
     CrawlerConfiguration config = new CrawlerConfiguration.Builder().build();
@@ -19,4 +32,43 @@ public final class SequentialWebCrawlerTest {
         .injectMembers(this);
     assertThat(sequentialWebCrawler.getMaxParallelism()).isEqualTo(1);
   }
+
+  @Test
+  public void testProfilerDimensions() throws Exception {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(SequentialWebCrawler.class.getName())
+            .setMaxDepth(1)
+            .setPopularWordCount(3)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .addProfilerDimensions("thread", "tag", "caller")
+            .build();
+    Guice.createInjector(
+        new WebCrawlerModule(config),
+        new ProfilerModule(config.getProfilerDimensions()))
+        .injectMembers(this);
+
+    crawler.crawl(config.getStartPages());
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    String written = writer.toString();
+
+    // The crawl is made up of parsing the page, which is made up of downloading and processing it.
+    assertThat(written).contains(
+        "com.udacity.webcrawler.SequentialWebCrawler#crawl > "
+            + "com.udacity.webcrawler.parser.PageParserImpl#parse took ");
+    assertThat(written).contains(
+        "com.udacity.webcrawler.parser.PageParserImpl#parse > "
+            + "com.udacity.webcrawler.parser.HttpClientPageFetcher#fetch took ");
+    assertThat(written).contains(
+        "com.udacity.webcrawler.parser.PageParserImpl#parse > "
+            + "com.udacity.webcrawler.parser.JsoupPageProcessor#process took ");
+    // Local pages have no host, so they are tagged with their scheme.
+    assertThat(written).contains("com.udacity.webcrawler.parser.PageParserImpl#parse [file] took ");
+    // Only the crawl itself counts towards the time of the thread that ran it.
+    Thread current = Thread.currentThread();
+    assertThat(written).containsMatch(
+        Pattern.quote("Thread #" + current.getId() + " (" + current.getName() + ")")
+            + " took .* \\(count 1,");
+  }
 }
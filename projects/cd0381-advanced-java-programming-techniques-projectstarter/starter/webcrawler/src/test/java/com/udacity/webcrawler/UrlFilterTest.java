@@ -0,0 +1,64 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class UrlFilterTest {
+
+  private static final List<String> URLS = List.of(
+      "",
+      "http://example.com/",
+      "http://example.com/index.html",
+      "https://blog.example.com/2020/01/post.html",
+      "http://example.com/report.pdf",
+      "http://example.com/report.pdf?download=1",
+      "http://example.com/?utm_source=feed&id=3",
+      "http://other.org/dead-end.html",
+      "http://other.org/a-loop.html",
+      "http://other.org/page\n.pdf",
+      "http://exampleXcom/",
+      "http://example.com/a$b");
+
+  private static final List<Pattern> PATTERNS = Stream.of(
+          "http://example\\.com/",
+          "^https://blog\\.example\\.com/.*",
+          ".*\\.pdf$",
+          ".*utm_source=.*",
+          ".*-loop\\.html$",
+          ".*dead-.*",
+          "http://example.com/",
+          ".*a\\$b",
+          "^$",
+          "https?://other\\.org/[a-z]+\\.html",
+          "(http)://\\1\\.org/.*",
+          ".*")
+      .map(Pattern::compile)
+      .collect(Collectors.toUnmodifiableList());
+
+  @Test
+  public void matchesLikeOriginalPatterns() {
+    // Every single pattern, then every pattern but the catch-all ".*", and then all of them.
+    for (int i = 0; i <= PATTERNS.size() + 1; i++) {
+      List<Pattern> patterns;
+      if (i < PATTERNS.size()) {
+        patterns = List.of(PATTERNS.get(i));
+      } else if (i == PATTERNS.size()) {
+        patterns = PATTERNS.subList(0, PATTERNS.size() - 1);
+      } else {
+        patterns = PATTERNS;
+      }
+      UrlFilter filter = UrlFilter.compile(patterns);
+      for (String url : URLS) {
+        assertWithMessage("\"%s\" ignored by %s", url, patterns)
+            .that(filter.isIgnored(url))
+            .isEqualTo(patterns.stream().anyMatch(p -> p.matcher(url).matches()));
+      }
+    }
+  }
+}
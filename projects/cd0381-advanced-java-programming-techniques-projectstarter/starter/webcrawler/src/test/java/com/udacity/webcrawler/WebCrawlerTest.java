@@ -1,6 +1,7 @@
 package com.udacity.webcrawler;
 
 import com.google.inject.Guice;
+import com.sun.net.httpserver.HttpServer;
 import com.udacity.webcrawler.json.CrawlResult;
 import com.udacity.webcrawler.json.CrawlerConfiguration;
 import org.junit.jupiter.api.Test;
@@ -8,10 +9,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -154,6 +165,101 @@ public final class WebCrawlerTest {
         .inOrder();
   }
 
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void pipelinedParsing(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setPipelinedParsing(true)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void streamingParsing(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setStreamingParsing(true)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
+  @Test
+  public void perHostLimitsSelectFrontierCrawler() {
+    for (int parallelism : new int[]{1, -1}) {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setParallelism(parallelism)
+              .setMinHostDelayMillis(10)
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+      assertWithMessage("Crawler for parallelism = " + parallelism)
+          .that(crawler.getClass())
+          .isAssignableTo(FrontierWebCrawler.class);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void perHostLimits(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setMaxRequestsPerHost(1)
+            .setMinHostDelayMillis(10)
+            .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(3);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void respectsIgnoredUrls(Class<?> crawlerClass) {
@@ -297,6 +403,34 @@ public final class WebCrawlerTest {
         .inOrder();
   }
 
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void probabilisticVisitedUrls(Class<?> crawlerClass) {
+    CrawlerConfiguration config =
+        new CrawlerConfiguration.Builder()
+            .setImplementationOverride(crawlerClass.getName())
+            .setMaxDepth(10)
+            .setPopularWordCount(3)
+            .setProbabilisticVisitedUrls(true)
+            .setExpectedUrlCount(100)
+            .setVisitedUrlFalsePositiveRate(0.001)
+            .addStartPages(Paths.get(DATA_DIR, "infinite-loop.html").toUri().toString())
+            .build();
+    Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+        .injectMembers(this);
+    assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+    CrawlResult result = crawler.crawl(config.getStartPages());
+
+    assertThat(result.getUrlsVisited()).isEqualTo(2);
+    assertThat(result.getWordCounts().entrySet())
+        .containsExactly(
+            Map.entry("the", 4),
+            Map.entry("jumped", 2),
+            Map.entry("brown", 2))
+        .inOrder();
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestParameters")
   public void multipleStartingUrls(Class<?> crawlerClass) {
@@ -323,4 +457,168 @@ public final class WebCrawlerTest {
             Map.entry("brown", 4))
         .inOrder();
   }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void returnsPromptlyAtDeadline(Class<?> crawlerClass) throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    HttpServer server = startStalledServer(release);
+    try {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(10)
+              .setPopularWordCount(3)
+              .setTimeoutSeconds(1)
+              .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+              .addStartPages(
+                  "http://localhost:" + server.getAddress().getPort() + "/stalled.html")
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+      assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+      long start = System.nanoTime();
+      CrawlResult result = crawler.crawl(config.getStartPages());
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      assertWithMessage("Crawl took " + elapsed.toMillis() + "ms")
+          .that(elapsed)
+          .isLessThan(Duration.ofSeconds(3));
+      // The words of the local pages were counted before the deadline.
+      assertThat(result.getWordCounts()).containsKey("the");
+    } finally {
+      release.countDown();
+      server.stop(0);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void stopsCrawlingThrottledHostsAtDeadline(Class<?> crawlerClass) throws Exception {
+    HttpServer server = startLinkFarmServer(50);
+    try {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(2)
+              .setPopularWordCount(3)
+              .setTimeoutSeconds(1)
+              .setMinHostDelayMillis(500)
+              .addStartPages("http://localhost:" + server.getAddress().getPort() + "/index.html")
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+      assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+      crawler.crawl(config.getStartPages());
+      // Give the workers a moment to notice that the crawl is over.
+      Thread.sleep(200);
+
+      // A worker still draining the level would be waiting out the host's delay in the scheduler,
+      // holding on to a pool thread for the rest of the 50 pages.
+      List<String> busyThreads = new ArrayList<>();
+      Thread.getAllStackTraces().forEach((thread, stack) -> {
+        if (Arrays.stream(stack)
+            .anyMatch(frame -> frame.getClassName().equals(HostScheduler.class.getName()))) {
+          busyThreads.add(thread.getName());
+        }
+      });
+      assertWithMessage("Threads still in the scheduler after the crawl")
+          .that(busyThreads)
+          .isEmpty();
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTestParameters")
+  public void listenerReceivesSnapshotsAndCanStopCrawl(Class<?> crawlerClass) throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    HttpServer server = startStalledServer(release);
+    try {
+      CrawlerConfiguration config =
+          new CrawlerConfiguration.Builder()
+              .setImplementationOverride(crawlerClass.getName())
+              .setMaxDepth(10)
+              .setPopularWordCount(3)
+              .setTimeoutSeconds(30)
+              .setProgressIntervalMillis(50)
+              .addStartPages(Paths.get(DATA_DIR, "test-page.html").toUri().toString())
+              .addStartPages(
+                  "http://localhost:" + server.getAddress().getPort() + "/stalled.html")
+              .build();
+      Guice.createInjector(new WebCrawlerModule(config), new NoOpProfilerModule())
+          .injectMembers(this);
+      assertThat(crawler.getClass()).isAssignableTo(crawlerClass);
+
+      List<CrawlResult> snapshots = new CopyOnWriteArrayList<>();
+      long start = System.nanoTime();
+      CrawlResult result = crawler.crawl(config.getStartPages(), snapshot -> {
+        snapshots.add(snapshot);
+        return snapshots.size() < 2;
+      });
+      Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+      // The stalled download would otherwise hold the crawl until its 30 second deadline.
+      assertWithMessage("Crawl took " + elapsed.toMillis() + "ms")
+          .that(elapsed)
+          .isLessThan(Duration.ofSeconds(10));
+      assertThat(snapshots).hasSize(2);
+      assertThat(snapshots.get(1).getWordCounts().size()).isAtMost(3);
+      assertThat(result.getWordCounts()).containsKey("the");
+    } finally {
+      release.countDown();
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Starts a server whose {@code /index.html} links to the given number of pages on the same host.
+   */
+  private static HttpServer startLinkFarmServer(int pageCount) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      StringBuilder page = new StringBuilder("<html><body><p>farm</p>");
+      if (exchange.getRequestURI().getPath().equals("/index.html")) {
+        for (int i = 0; i < pageCount; i++) {
+          page.append("<a href=\"/page").append(i).append(".html\">page</a>");
+        }
+      }
+      byte[] body = page.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "text/html");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    return server;
+  }
+
+  /**
+   * Starts a server whose {@code /stalled.html} sends the start of a page, then never finishes it
+   * until the given latch is released.
+   */
+  private static HttpServer startStalledServer(CountDownLatch release) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/stalled.html", exchange -> {
+      exchange.getResponseHeaders().add("Content-Type", "text/html");
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write("<p>partial".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    return server;
+  }
 }
@@ -0,0 +1,110 @@
+package com.udacity.webcrawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares merging per-page word counts into a {@link WordCountAccumulator} against the
+ * {@link ConcurrentHashMap#compute} merge that the parallel crawler used before.
+ *
+ * <p>Each operation merges the word counts of one page. Words are drawn from a Zipf-like
+ * distribution, so a handful of words appear on every page, just like on real web pages.
+ *
+ * <p>Run {@link #main(String[])} from the test classpath (after {@code mvn test-compile}) to
+ * benchmark with 1, 4 and 16 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordCountAccumulatorBenchmark {
+  private static final int VOCABULARY_SIZE = 50_000;
+  private static final int WORDS_PER_PAGE = 500;
+  private static final int PAGES_PER_THREAD = 256;
+
+  private Map<String, Integer> map;
+  private WordCountAccumulator accumulator;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    map = new ConcurrentHashMap<>();
+    accumulator = new WordCountAccumulator();
+  }
+
+  @Benchmark
+  public void concurrentHashMapCompute(Pages pages) {
+    Map<String, Integer> wordCounts = map;
+    for (Map.Entry<String, Integer> e : pages.next().entrySet()) {
+      wordCounts.compute(
+          e.getKey(), (key, value) ->
+              (value == null) ? e.getValue() : wordCounts.get(e.getKey()) + e.getValue());
+    }
+  }
+
+  @Benchmark
+  public void wordCountAccumulator(Pages pages) {
+    pages.next().forEach(accumulator::add);
+  }
+
+  /**
+   * The per-page word counts merged by a single benchmark thread.
+   */
+  @State(Scope.Thread)
+  public static class Pages {
+    private final List<Map<String, Integer>> pages = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void generate() {
+      Random random = new Random(Thread.currentThread().getId());
+      for (int i = 0; i < PAGES_PER_THREAD; i++) {
+        Map<String, Integer> page = new HashMap<>();
+        for (int j = 0; j < WORDS_PER_PAGE; j++) {
+          // Cubing a uniform value skews the distribution towards the most frequent words.
+          double u = random.nextDouble();
+          page.merge("word" + (int) (u * u * u * VOCABULARY_SIZE), 1, Integer::sum);
+        }
+        pages.add(page);
+      }
+    }
+
+    Map<String, Integer> next() {
+      Map<String, Integer> page = pages.get(next);
+      next = (next + 1) % pages.size();
+      return page;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : new int[]{1, 4, 16}) {
+      new Runner(
+          new OptionsBuilder()
+              .include(WordCountAccumulatorBenchmark.class.getSimpleName())
+              .threads(threads)
+              .build())
+          .run();
+    }
+  }
+}
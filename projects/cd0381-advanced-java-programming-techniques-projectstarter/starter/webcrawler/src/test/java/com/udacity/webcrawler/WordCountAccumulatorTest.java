@@ -0,0 +1,50 @@
+package com.udacity.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordCountAccumulatorTest {
+  @Test
+  public void testAdd() {
+    WordCountAccumulator accumulator = new WordCountAccumulator();
+    assertThat(accumulator.isEmpty()).isTrue();
+
+    Map.of("the", 2, "quick", 1).forEach(accumulator::add);
+    Map.of("the", 3, "fox", 1).forEach(accumulator::add);
+
+    assertThat(accumulator.isEmpty()).isFalse();
+    assertThat(accumulator.top(Integer.MAX_VALUE))
+        .containsExactly("the", 5, "quick", 1, "fox", 1);
+  }
+
+  @Test
+  public void testConcurrentAdds() throws Exception {
+    WordCountAccumulator accumulator = new WordCountAccumulator();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(() -> Map.of("the", 2, "dog", 1).forEach(accumulator::add));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(accumulator.top(Integer.MAX_VALUE)).containsExactly("the", 2000, "dog", 1000);
+  }
+
+  @Test
+  public void testTop() {
+    WordCountAccumulator accumulator = new WordCountAccumulator();
+    Map<String, Integer> wordCounts = Map.of("the", 4, "quick", 2, "brown", 2, "fox", 1);
+    wordCounts.forEach(accumulator::add);
+
+    assertThat(accumulator.top(3).entrySet())
+        .containsExactly(Map.entry("the", 4), Map.entry("brown", 2), Map.entry("quick", 2))
+        .inOrder();
+    assertThat(accumulator.top(3)).isEqualTo(WordCounts.sort(wordCounts, 3));
+  }
+}
@@ -0,0 +1,90 @@
+package com.udacity.webcrawler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the top-k selection in {@link WordCounts#sort(Map, int)} against sorting every entry and
+ * keeping the first {@code popularWordCount}, which is how it used to work.
+ *
+ * <p>Run {@link #main(String[])} from the test classpath (after {@code mvn test-compile}). The
+ * 10M-entry map needs a few GB of heap, which the forked JVM is given.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class WordCountsBenchmark {
+
+  @Param({"100000", "10000000"})
+  public int distinctWords;
+
+  @Param({"5", "100"})
+  public int popularWordCount;
+
+  private Map<String, Integer> wordCounts;
+
+  @Setup
+  public void generate() {
+    Random random = new Random(42);
+    wordCounts = new HashMap<>(distinctWords * 4 / 3 + 1);
+    while (wordCounts.size() < distinctWords) {
+      // Most words are rare, like in real text.
+      double u = random.nextDouble();
+      wordCounts.put(Long.toString(random.nextLong() & Long.MAX_VALUE, 36).substring(0, 8),
+          1 + (int) (1000 * u * u * u * u));
+    }
+  }
+
+  @Benchmark
+  public Map<String, Integer> topK() {
+    return WordCounts.sort(wordCounts, popularWordCount);
+  }
+
+  @Benchmark
+  public Map<String, Integer> fullSort() {
+    return wordCounts.entrySet()
+        .stream()
+        .sorted((a, b) -> {
+          if (!a.getValue().equals(b.getValue())) {
+            return b.getValue() - a.getValue();
+          }
+          if (a.getKey().length() != b.getKey().length()) {
+            return b.getKey().length() - a.getKey().length();
+          }
+          return a.getKey().compareTo(b.getKey());
+        })
+        .limit(Math.min(popularWordCount, wordCounts.size()))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+            (oldVal, newVal) -> oldVal, LinkedHashMap::new));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(WordCountsBenchmark.class.getSimpleName())
+            .build())
+        .run();
+  }
+}
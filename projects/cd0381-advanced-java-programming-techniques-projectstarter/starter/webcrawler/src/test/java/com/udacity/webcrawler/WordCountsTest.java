@@ -2,8 +2,12 @@ package com.udacity.webcrawler;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static com.google.common.truth.Truth.assertWithMessage;
 
@@ -82,4 +86,53 @@ public final class WordCountsTest {
             Map.entry("quick", 1),
             Map.entry("fox", 1))
         .inOrder();  }
+
+  @Test
+  public void testLargeMapMatchesFullSort() {
+    // Large enough to be selected from in parallel, with lots of ties on count and length.
+    Random random = new Random(42);
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    for (int i = 0; i < 200_000; i++) {
+      unsortedCounts.put(Integer.toString(random.nextInt(1_000_000), 36), random.nextInt(50));
+    }
+
+    Map<String, Integer> result = WordCounts.sort(unsortedCounts, 100);
+
+    List<String> expected =
+        unsortedCounts.entrySet()
+            .stream()
+            .sorted(Comparator.<Map.Entry<String, Integer>>comparingInt(Map.Entry::getValue)
+                .reversed()
+                .thenComparing(e -> e.getKey().length(), Comparator.reverseOrder())
+                .thenComparing(Map.Entry::getKey))
+            .limit(100)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    assertWithMessage("Returned the correct words, but they are in the wrong order")
+        .that(result.keySet())
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+  }
+
+  @Test
+  public void testUnboundedPopularWords() {
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    unsortedCounts.put("the", 2);
+    unsortedCounts.put("fox", 1);
+
+    assertWithMessage("Returned the wrong popular words")
+        .that(WordCounts.sort(unsortedCounts, Integer.MAX_VALUE))
+        .containsExactly("the", 2, "fox", 1)
+        .inOrder();
+  }
+
+  @Test
+  public void testZeroPopularWords() {
+    Map<String, Integer> unsortedCounts = new HashMap<>();
+    unsortedCounts.put("the", 2);
+
+    assertWithMessage("Returned the wrong number of popular words")
+        .that(WordCounts.sort(unsortedCounts, 0))
+        .isEmpty();
+  }
 }
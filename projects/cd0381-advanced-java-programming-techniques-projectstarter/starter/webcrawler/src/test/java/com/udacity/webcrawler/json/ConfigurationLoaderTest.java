@@ -24,7 +24,9 @@ public final class ConfigurationLoaderTest {
         "\"timeoutSeconds\": 10, " +
         "\"popularWordCount\": 5, " +
         "\"profileOutputPath\": \"profileOutput.txt\", " +
-        "\"resultPath\": \"resultPath.json\" " +
+        "\"resultPath\": \"resultPath.json\", " +
+        "\"fetchConcurrency\": 200, " +
+        "\"visitedUrlsOffHeap\": true " +
         " }";
 
     Reader reader = new StringReader(json);
@@ -48,6 +50,8 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEqualTo("profileOutput.txt");
     assertThat(config.getResultPath()).isEqualTo("resultPath.json");
+    assertThat(config.getFetchConcurrency()).isEqualTo(200);
+    assertThat(config.isVisitedUrlsOffHeap()).isTrue();
   }
 
   @Test
@@ -77,5 +81,6 @@ public final class ConfigurationLoaderTest {
     assertThat(config.getPopularWordCount()).isEqualTo(5);
     assertThat(config.getProfileOutputPath()).isEmpty();
     assertThat(config.getResultPath()).isEmpty();
+    assertThat(config.getFetchConcurrency()).isEqualTo(64);
   }
 }
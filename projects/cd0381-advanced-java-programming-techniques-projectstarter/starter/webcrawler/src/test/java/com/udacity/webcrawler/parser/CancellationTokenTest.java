@@ -0,0 +1,59 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.FakeClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class CancellationTokenTest {
+  private final FakeClock clock = new FakeClock();
+
+  @Test
+  public void cancelledOnceDeadlinePasses() {
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plusSeconds(10));
+
+    assertThat(cancellation.isCancelled()).isFalse();
+    assertThat(cancellation.remaining()).isEqualTo(Duration.ofSeconds(10));
+
+    clock.tick(Duration.ofSeconds(11));
+
+    assertThat(cancellation.isCancelled()).isTrue();
+    assertThat(cancellation.remaining()).isEqualTo(Duration.ZERO);
+  }
+
+  @Test
+  public void runsRegisteredCallbacksOnce() {
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plusSeconds(10));
+    AtomicInteger registered = new AtomicInteger();
+    AtomicInteger unregistered = new AtomicInteger();
+    cancellation.onCancel(registered::incrementAndGet);
+    cancellation.onCancel(unregistered::incrementAndGet).close();
+
+    cancellation.cancel();
+    cancellation.cancel();
+
+    assertThat(cancellation.isCancelled()).isTrue();
+    assertThat(registered.get()).isEqualTo(1);
+    assertThat(unregistered.get()).isEqualTo(0);
+
+    AtomicInteger late = new AtomicInteger();
+    cancellation.onCancel(late::incrementAndGet);
+    assertThat(late.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void limitsTimeoutsToDeadline() {
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plusSeconds(3));
+
+    assertThat(cancellation.limit(Duration.ofSeconds(10))).isEqualTo(Duration.ofSeconds(3));
+    assertThat(cancellation.limit(Duration.ZERO)).isEqualTo(Duration.ofSeconds(3));
+    assertThat(cancellation.limit(Duration.ofSeconds(1))).isEqualTo(Duration.ofSeconds(1));
+    assertThat(CancellationToken.NONE.limit(Duration.ZERO)).isEqualTo(Duration.ZERO);
+  }
+}
@@ -0,0 +1,181 @@
+package com.udacity.webcrawler.parser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class HttpClientPageFetcherTest {
+  private static final String PAGE =
+      "<html><body><p>Hello hello world</p><a href=\"/other.html\">other</a></body></html>";
+  private static final String ETAG = "\"v1\"";
+
+  private final PageFetcher fetcher = new HttpClientPageFetcher();
+  private final CountDownLatch releaseStalled = new CountDownLatch(1);
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/page.html", exchange -> {
+      // Like many servers, this one sends the Content-Encoding of the page along with a 304.
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      byte[] body = gzip(PAGE.getBytes(StandardCharsets.UTF_8));
+      exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+      exchange.getResponseHeaders().add("ETag", ETAG);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.createContext("/image.png", exchange -> {
+      exchange.getResponseHeaders().add("Content-Type", "image/png");
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.createContext("/missing.html", exchange -> {
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.createContext("/stalled.html", exchange -> {
+      // Sends the headers and the start of the body, then hangs until the test is over.
+      exchange.getResponseHeaders().add("Content-Type", "text/html");
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write("<p>partial".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        releaseStalled.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    releaseStalled.countDown();
+    server.stop(0);
+  }
+
+  @Test
+  public void decompressesGzipResponses() throws IOException {
+    URI uri = uri("/page.html");
+
+    FetchedPage page = fetcher.fetch(uri, Duration.ofSeconds(5));
+
+    assertThat(page.getCharset()).isEqualTo("UTF-8");
+    assertThat(page.getBaseUri()).isEqualTo(uri.toString());
+    assertThat(new String(page.openStream().readAllBytes(), StandardCharsets.UTF_8))
+        .isEqualTo(PAGE);
+  }
+
+  @Test
+  public void doesNotDecodeNotModifiedResponses() throws IOException {
+    URI uri = uri("/page.html");
+    assertThat(fetcher.fetch(uri, Duration.ofSeconds(5)).getEtag()).isEqualTo(ETAG);
+
+    FetchedPage page =
+        fetcher.fetch(uri, Duration.ofSeconds(5), ETAG, null, CancellationToken.NONE);
+
+    assertThat(page.isNotModified()).isTrue();
+    assertThat(page.getEtag()).isEqualTo(ETAG);
+  }
+
+  @Test
+  public void parsesFetchedPages() {
+    PageParser.Result result = new PageParserImpl(
+        uri("/page.html").toString(),
+        Duration.ofSeconds(5),
+        IgnoredWordSet.compile(List.of()),
+        fetcher,
+        PageCache.DISABLED,
+        new JsoupPageProcessor(),
+        CancellationToken.NONE).parse();
+
+    assertThat(result.getWordCounts()).containsExactly("hello", 2, "world", 1, "other", 1);
+    assertThat(result.getLinks()).containsExactly(uri("/other.html").toString());
+  }
+
+  @Test
+  public void rejectsErrorsAndNonHtmlContent() {
+    IOException missing =
+        assertThrows(IOException.class, () -> fetcher.fetch(uri("/missing.html"), Duration.ZERO));
+    assertThat(missing).hasMessageThat().startsWith("HTTP error 404");
+    assertThrows(IOException.class, () -> fetcher.fetch(uri("/image.png"), Duration.ZERO));
+  }
+
+  @Test
+  public void abortsStalledDownloadsWhenCancelled() {
+    Clock clock = Clock.systemUTC();
+    CancellationToken cancellation =
+        CancellationToken.withDeadline(clock, clock.instant().plusMillis(200));
+
+    URI uri = uri("/stalled.html");
+    long start = System.nanoTime();
+    assertThrows(
+        IOException.class,
+        () -> fetcher.fetch(uri, Duration.ofSeconds(30), null, null, cancellation));
+
+    assertThat(cancellation.isCancelled()).isTrue();
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+  }
+
+  @Test
+  public void mapsLargeLocalFiles(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("large.html");
+    Files.writeString(file, "<p>big page</p>".repeat(100_000) + "<a href=\"next.html\">x</a>");
+
+    FetchedPage page = fetcher.fetch(file.toUri(), Duration.ZERO);
+
+    assertThat(page.getBody().isDirect()).isTrue();
+    List<PageProcessor> processors =
+        List.of(new JsoupPageProcessor(), new StreamingPageProcessor());
+    for (PageProcessor processor : processors) {
+      PageParser.Result.Builder builder = new PageParser.Result.Builder();
+      processor.process(page, new WordTokenizer(IgnoredWordSet.compile(List.of())), builder);
+      PageParser.Result result = builder.build();
+      assertThat(result.getWordCounts()).containsExactly("big", 100_000, "page", 100_000, "x", 1);
+      assertThat(result.getLinks()).containsExactly(dir.resolve("next.html").toUri().toString());
+    }
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(bytes);
+    }
+    return compressed.toByteArray();
+  }
+}
@@ -0,0 +1,57 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class IgnoredWordSetTest {
+
+  private static final List<String> WORDS = List.of(
+      "a", "an", "the", "The", "THE", "fox", "quick", "jumped", "aa", "abab", "abcabc", "foo.bar",
+      "a b", "😀", "😀😀", "x1", "hello", "colour", "color", "");
+
+  private static final List<Pattern> PATTERNS = List.of(
+      Pattern.compile("^.{1,3}$"),
+      Pattern.compile("^......$"),
+      Pattern.compile(".{4,}"),
+      Pattern.compile("^.{2}$"),
+      Pattern.compile("the"),
+      Pattern.compile("^quick$"),
+      Pattern.compile("foo.bar", Pattern.LITERAL),
+      Pattern.compile("the", Pattern.CASE_INSENSITIVE),
+      Pattern.compile("colou?r"),
+      Pattern.compile("[a-z]\\d"),
+      Pattern.compile("(ab)\\1"),
+      Pattern.compile("(?<w>abc)\\k<w>"),
+      Pattern.compile("hel # comment", Pattern.COMMENTS),
+      Pattern.compile("(?x)lo # comment"));
+
+  @Test
+  public void matchesLikeOriginalPatterns() {
+    // Every single pattern, and then every pattern at once.
+    for (int i = 0; i <= PATTERNS.size(); i++) {
+      List<Pattern> patterns = (i < PATTERNS.size()) ? List.of(PATTERNS.get(i)) : PATTERNS;
+      IgnoredWordSet.WordMatcher matcher = IgnoredWordSet.compile(patterns).newMatcher();
+      for (String word : WORDS) {
+        // Embed the word in some text, to make sure only the region is matched.
+        String text = "x " + word + " y";
+        matcher.reset(text);
+        assertWithMessage("\"%s\" ignored by %s", word, patterns)
+            .that(matcher.matches(2, 2 + word.length()))
+            .isEqualTo(patterns.stream().anyMatch(p -> p.matcher(word).matches()));
+      }
+    }
+  }
+
+  @Test
+  public void lengthAndLiteralPatternsNeedNoRegex() {
+    IgnoredWordSet set = IgnoredWordSet.compile(
+        List.of(Pattern.compile("^.{1,3}$"), Pattern.compile("^....$"), Pattern.compile("the")));
+
+    assertThat(set.toString()).contains("patterns=[]");
+  }
+}
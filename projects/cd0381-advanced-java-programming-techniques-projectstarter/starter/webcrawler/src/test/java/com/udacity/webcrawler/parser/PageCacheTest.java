@@ -0,0 +1,114 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class PageCacheTest {
+
+  @TempDir
+  public Path tempDir;
+
+  @Test
+  public void reusesResultsOfUnchangedPages() throws IOException {
+    Path page = tempDir.resolve("page.html");
+    Files.writeString(page, "<p>one two two</p><a href=\"other.html\">link</a>");
+    PageCache cache = new PageCache(tempDir.resolve("cache"), List.of());
+    RecordingFetcher fetcher = new RecordingFetcher();
+
+    PageParser.Result first = parse(page, fetcher, cache);
+    PageParser.Result second = parse(page, fetcher, cache);
+
+    assertThat(fetcher.notModified).containsExactly(false, true).inOrder();
+    assertThat(second.getWordCounts()).isEqualTo(first.getWordCounts());
+    assertThat(second.getWordCounts()).containsExactly("one", 1, "two", 2, "link", 1);
+    assertThat(second.getLinks()).isEqualTo(first.getLinks());
+
+    Files.writeString(page, "<p>three</p>");
+    Files.setLastModifiedTime(
+        page, FileTime.from(Files.getLastModifiedTime(page).toInstant().plusSeconds(10)));
+    PageParser.Result third = parse(page, fetcher, cache);
+
+    assertThat(fetcher.notModified).containsExactly(false, true, false).inOrder();
+    assertThat(third.getWordCounts()).containsExactly("three", 1);
+  }
+
+  @Test
+  public void changedIgnoredWordsMissTheCache() throws IOException {
+    Path page = tempDir.resolve("page.html");
+    Files.writeString(page, "<p>one two</p>");
+    Path directory = tempDir.resolve("cache");
+    parse(page, new RecordingFetcher(), new PageCache(directory, List.of()));
+
+    String url = page.toUri().toString();
+    assertThat(new PageCache(directory, List.of()).get(url)).isNotNull();
+    assertThat(new PageCache(directory, List.of(Pattern.compile("one"))).get(url)).isNull();
+  }
+
+  @Test
+  public void doesNotCachePagesThatFailedToProcess() throws IOException {
+    Path page = tempDir.resolve("page.html");
+    Files.writeString(page, "<p>one two</p>");
+    PageCache cache = new PageCache(tempDir.resolve("cache"), List.of());
+    RecordingFetcher fetcher = new RecordingFetcher();
+    PageProcessor failing = (fetched, tokenizer, builder) -> {
+      throw new IOException("Malformed page");
+    };
+
+    PageParser.Result failed = parse(page, fetcher, cache, failing);
+    assertThat(failed.getWordCounts()).isEmpty();
+    assertThat(cache.get(page.toUri().toString())).isNull();
+
+    // The page has not changed, but it is downloaded and processed again.
+    PageParser.Result retried = parse(page, fetcher, cache);
+    assertThat(fetcher.notModified).containsExactly(false, false).inOrder();
+    assertThat(retried.getWordCounts()).containsExactly("one", 1, "two", 1);
+  }
+
+  private static PageParser.Result parse(Path page, PageFetcher fetcher, PageCache cache) {
+    return parse(page, fetcher, cache, new JsoupPageProcessor());
+  }
+
+  private static PageParser.Result parse(
+      Path page, PageFetcher fetcher, PageCache cache, PageProcessor processor) {
+    return new PageParserImpl(
+        page.toUri().toString(),
+        Duration.ZERO,
+        IgnoredWordSet.compile(List.of()),
+        fetcher,
+        cache,
+        processor,
+        CancellationToken.NONE).parse();
+  }
+
+  /**
+   * Fetches pages from disk, and records whether each one was modified.
+   */
+  private static final class RecordingFetcher implements PageFetcher {
+    private final PageFetcher delegate = new HttpClientPageFetcher();
+    private final List<Boolean> notModified = new ArrayList<>();
+
+    @Override
+    public FetchedPage fetch(
+        URI uri,
+        Duration timeout,
+        String etag,
+        String lastModified,
+        CancellationToken cancellation) throws IOException {
+      FetchedPage page = delegate.fetch(uri, timeout, etag, lastModified, cancellation);
+      notModified.add(page.isNotModified());
+      return page;
+    }
+  }
+}
@@ -13,10 +13,12 @@ public final class PageParserImplTest {
 
   private static final String DATA_DIR = System.getProperty("testDataDir");
   private final String testPage = Paths.get(DATA_DIR, "test-page.html").toUri().toString();
+  private final PageFetcher fetcher = new HttpClientPageFetcher();
 
   @Test
   public void basicParsing() {
-    PageParser.Result result = new PageParserImpl(testPage, Duration.ZERO, List.of()).parse();
+    PageParser.Result result =
+        new PageParserImpl(testPage, Duration.ZERO, List.of(), fetcher).parse();
 
     assertThat(result.getLinks())
         .containsExactly(Paths.get(DATA_DIR, "link-1.html").toUri().toString());
@@ -29,12 +31,15 @@ public final class PageParserImplTest {
     assertThat(result.getWordCounts()).containsEntry("over", 1);
     assertThat(result.getWordCounts()).containsEntry("lazy", 1);
     assertThat(result.getWordCounts()).containsEntry("dog", 1);
+    // Local files are not downloaded over the network.
+    assertThat(result.getDownloadNanos().isPresent()).isFalse();
   }
 
   @Test
   public void parsingWithIgnoredWords() {
     PageParser.Result result =
-        new PageParserImpl(testPage, Duration.ZERO, List.of(Pattern.compile("^...$"))).parse();
+        new PageParserImpl(testPage, Duration.ZERO, List.of(Pattern.compile("^...$")), fetcher)
+            .parse();
 
     assertThat(result.getLinks())
         .containsExactly(Paths.get(DATA_DIR, "link-1.html").toUri().toString());
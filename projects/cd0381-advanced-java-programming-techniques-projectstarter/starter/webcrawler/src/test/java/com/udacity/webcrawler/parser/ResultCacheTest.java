@@ -0,0 +1,115 @@
+package com.udacity.webcrawler.parser;
+
+import com.udacity.webcrawler.profiler.Profiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class ResultCacheTest {
+  private final CountingProfiler profiler = new CountingProfiler();
+  private long now = 0;
+
+  @Test
+  public void countsHitsAndMisses() {
+    ResultCache cache = new ResultCache(1000, Duration.ZERO, profiler, () -> now);
+    PageParser.Result result = result("a", "b");
+
+    assertThat(cache.get("http://example.com/")).isNull();
+    cache.put("http://example.com/", result);
+    assertThat(cache.get("http://example.com/")).isSameInstanceAs(result);
+    assertThat(cache.get("http://example.com/")).isSameInstanceAs(result);
+
+    assertThat(profiler.counters).containsExactly("ResultCache#hits", 2L, "ResultCache#misses", 1L);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedByWeight() {
+    // 16 segments of weight 4, and every result below weighs 3, so each segment fits one result.
+    ResultCache cache = new ResultCache(64, Duration.ZERO, profiler, () -> now);
+    for (int i = 0; i < 100; i++) {
+      cache.put("http://example.com/" + i, result("a", "b"));
+      assertThat(cache.weight()).isAtMost(64);
+    }
+    assertThat(cache.get("http://example.com/99")).isNotNull();
+  }
+
+  @Test
+  public void expiresEntries() {
+    ResultCache cache = new ResultCache(1000, Duration.ofSeconds(10), profiler, () -> now);
+    cache.put("http://example.com/", result("a"));
+
+    now += Duration.ofSeconds(9).toNanos();
+    assertThat(cache.get("http://example.com/")).isNotNull();
+    now += Duration.ofSeconds(1).toNanos();
+    assertThat(cache.get("http://example.com/")).isNull();
+    assertThat(cache.weight()).isEqualTo(0);
+  }
+
+  @Test
+  public void doesNotCacheEmptyResults() {
+    ResultCache cache = new ResultCache(1000, Duration.ZERO, profiler, () -> now);
+    int[] parses = new int[1];
+    PageParser parser = cache.wrap("http://example.com/", () -> {
+      parses[0]++;
+      return new PageParser.Result.Builder().build();
+    });
+
+    parser.parse();
+    parser.parse();
+
+    assertThat(parses[0]).isEqualTo(2);
+  }
+
+  @Test
+  public void cachedResultsHaveNoDownloadTime() {
+    ResultCache cache = new ResultCache(1000, Duration.ZERO, profiler, () -> now);
+    PageParser parser =
+        cache.wrap("http://example.com/", () -> result("hello").withDownloadNanos(1_000_000));
+
+    assertThat(parser.parse().getDownloadNanos().getAsLong()).isEqualTo(1_000_000);
+    assertThat(parser.parse().getDownloadNanos().isPresent()).isFalse();
+  }
+
+  private static PageParser.Result result(String... words) {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    for (String word : words) {
+      builder.addWord(word);
+    }
+    return builder.build();
+  }
+
+  /**
+   * A {@link Profiler} that only keeps counters.
+   */
+  private static final class CountingProfiler implements Profiler {
+    final Map<String, Long> counters = new HashMap<>();
+
+    @Override
+    public <T> T wrap(Class<T> klass, T delegate) {
+      return delegate;
+    }
+
+    @Override
+    public void count(String name, long delta) {
+      counters.merge(name, delta, Long::sum);
+    }
+
+    @Override
+    public void gauge(String name, long value) {
+    }
+
+    @Override
+    public void writeData(Path path) {
+    }
+
+    @Override
+    public void writeData(Writer writer) {
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class StreamingPageProcessorTest {
+
+  private static final String DATA_DIR = System.getProperty("testDataDir");
+
+  private static final List<String> PAGES = List.of(
+      "<p>the quick brown fox <a href=\"/link-1.html\">link</a></p>",
+      "<html><head><title>A &amp; B</title><style>p { color: red }</style></head>"
+          + "<body>one<b>two</b>three<!-- four --> five<script>if (a < b) six();</script></body>",
+      "foo&nbsp;bar &AMP; baz&#x41;&#66;&copy x < y <3 a<b",
+      "<a HREF='x.html?a=1&amp;b=2'>A</a><a href=y.html>B</a><a href>C</a><a>D</a>",
+      "<a href=\"x.html\" href=\"y.html\">x</a><base href=\"http://other.example/dir/\">",
+      "<div title=\"a > b\">text</div><!DOCTYPE html><?xml version=\"1.0\"?>more</ div>end",
+      "<textarea><b>bold</b> &lt;</textarea><xmp><i>raw</i> &amp;</xmp><![CDATA[data]]>",
+      "soft\u00ADhyphen zero\u200Bwidth alone \u200B here",
+      "<!-- unterminated comment <a href=\"z.html\">z</a>",
+      "<p>unterminated <a href=\"z.html\"",
+      "");
+
+  @Test
+  public void matchesJsoup() throws IOException {
+    for (String html : PAGES) {
+      for (String baseUri : List.of("http://example.com/a/b.html", "")) {
+        FetchedPage page = new FetchedPage(
+            URI.create("http://example.com/a/b.html"),
+            html.getBytes(StandardCharsets.UTF_8),
+            null,
+            baseUri);
+        assertSameResult(html, page, List.of());
+        assertSameResult(html, page, List.of(Pattern.compile("^.{1,3}$")));
+      }
+    }
+  }
+
+  @Test
+  public void matchesJsoupOnTestPages() throws IOException {
+    for (String name : List.of("test-page.html", "link-1.html", "infinite-loop.html")) {
+      Path path = Path.of(DATA_DIR, name);
+      FetchedPage page =
+          new FetchedPage(path.toUri(), Files.readAllBytes(path), "UTF-8", "");
+      assertSameResult(name, page, List.of());
+    }
+  }
+
+  @Test
+  public void detectsCharset() throws IOException {
+    String html = "<meta charset=\"ISO-8859-1\"><p>café</p>";
+    FetchedPage page = new FetchedPage(
+        URI.create("http://example.com/"), html.getBytes(StandardCharsets.ISO_8859_1), null, "");
+
+    assertThat(process(new StreamingPageProcessor(), page, List.of()).getWordCounts())
+        .containsExactly("caf", 1);
+    assertSameResult(html, page, List.of());
+  }
+
+  private static void assertSameResult(String html, FetchedPage page, List<Pattern> ignoredWords)
+      throws IOException {
+    PageParser.Result expected = process(new JsoupPageProcessor(), page, ignoredWords);
+    PageParser.Result actual = process(new StreamingPageProcessor(), page, ignoredWords);
+    assertWithMessage("words of %s", html)
+        .that(actual.getWordCounts())
+        .isEqualTo(expected.getWordCounts());
+    assertWithMessage("links of %s", html)
+        .that(actual.getLinks())
+        .containsExactlyElementsIn(expected.getLinks());
+  }
+
+  private static PageParser.Result process(
+      PageProcessor processor, FetchedPage page, List<Pattern> ignoredWords) throws IOException {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    processor.process(page, new WordTokenizer(IgnoredWordSet.compile(ignoredWords)), builder);
+    return builder.build();
+  }
+}
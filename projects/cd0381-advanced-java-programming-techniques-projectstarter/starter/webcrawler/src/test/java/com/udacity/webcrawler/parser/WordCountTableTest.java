@@ -0,0 +1,39 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public final class WordCountTableTest {
+  @Test
+  public void testIncrement() {
+    WordCountTable table = new WordCountTable();
+    table.increment("the");
+    table.increment("quick");
+    table.increment("the");
+
+    assertThat(table.size()).isEqualTo(2);
+    assertThat(table.toMap()).containsExactly("the", 2, "quick", 1);
+  }
+
+  @Test
+  public void testGrowsPastInitialCapacity() {
+    WordCountTable table = new WordCountTable();
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 10_000; i++) {
+      String word = "word" + (i % 3_000);
+      table.increment(word);
+      expected.merge(word, 1, Integer::sum);
+    }
+
+    Map<String, Integer> visited = new HashMap<>();
+    table.forEach(visited::put);
+
+    assertThat(table.size()).isEqualTo(3_000);
+    assertThat(visited).isEqualTo(expected);
+    assertThat(table.toMap()).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,74 @@
+package com.udacity.webcrawler.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class WordTokenizerTest {
+
+  private static final List<String> TEXTS = List.of(
+      "The quick brown fox jumped over the lazy dog.",
+      "  leading and trailing\t\n",
+      "",
+      "\u2003\u2003",
+      "it's a co-operative, well-known... fact!",
+      "\u2003em-spaced\u00a0non-breaking words \u2003 here",
+      "Ünïcödé CAFÉ naïve 日本語 tokens",
+      "--- *** ... lone punctuation",
+      "x\u000by\fz\rw",
+      "surrogate 😀 pairs😀");
+
+  @Test
+  public void matchesRegexTokenization() {
+    for (List<Pattern> ignoredWords : List.of(
+        List.<Pattern>of(),
+        List.of(Pattern.compile("^...$")),
+        List.of(Pattern.compile("^.{1,3}$"), Pattern.compile("(?i)the"), Pattern.compile("\\bco")))) {
+      for (String text : TEXTS) {
+        assertWithMessage("tokens of \"%s\" ignoring %s", text, ignoredWords)
+            .that(tokenize(text, ignoredWords))
+            .isEqualTo(regexTokenize(text, ignoredWords));
+      }
+    }
+  }
+
+  @Test
+  public void reusesTokenizerAcrossTexts() {
+    WordTokenizer tokenizer = new WordTokenizer(IgnoredWordSet.compile(List.of()));
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    tokenizer.tokenize("The cat", builder);
+    tokenizer.tokenize("a CAT and the dog, supercalifragilisticexpialidocious", builder);
+
+    assertThat(builder.build().getWordCounts())
+        .containsExactly(
+            "the", 2, "cat", 2, "a", 1, "and", 1, "dog", 1,
+            "supercalifragilisticexpialidocious", 1);
+  }
+
+  private static Map<String, Integer> tokenize(String text, List<Pattern> ignoredWords) {
+    PageParser.Result.Builder builder = new PageParser.Result.Builder();
+    new WordTokenizer(IgnoredWordSet.compile(ignoredWords)).tokenize(text, builder);
+    return builder.build().getWordCounts();
+  }
+
+  /**
+   * The word splitting the parser used before {@link WordTokenizer} existed.
+   */
+  private static Map<String, Integer> regexTokenize(String text, List<Pattern> ignoredWords) {
+    Map<String, Integer> counts = new HashMap<>();
+    Arrays.stream(Pattern.compile("\\s+").split(text.strip()))
+        .filter(s -> !s.isBlank())
+        .filter(s -> ignoredWords.stream().noneMatch(p -> p.matcher(s).matches()))
+        .map(s -> s.replaceAll("\\W", ""))
+        .map(String::toLowerCase)
+        .forEach(word -> counts.merge(word, 1, Integer::sum));
+    return counts;
+  }
+}
@@ -6,6 +6,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A fake, mutable {@link Clock} implementation for tests.
@@ -40,6 +41,14 @@ public final class FakeClock extends Clock {
     return now;
   }
 
+  /**
+   * Returns the time of the fake clock in nanoseconds, for code that measures elapsed time with a
+   * ticker such as {@link System#nanoTime()} rather than with a clock.
+   */
+  public long nanoTime() {
+    return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+  }
+
   /**
    * Increments the time of the fake clock by the given amount.
    */
@@ -0,0 +1,87 @@
+package com.udacity.webcrawler.profiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+public final class LatencyHistogramTest {
+  @Test
+  public void bucketsHoldTheirValues() {
+    long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 999_999, 1_000_000_000L, Long.MAX_VALUE};
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertWithMessage("Bucket of " + value)
+          .that(LatencyHistogram.highestValueInBucket(index))
+          .isAtLeast(value);
+      if (index > 0) {
+        assertWithMessage("Bucket before " + value)
+            .that(LatencyHistogram.highestValueInBucket(index - 1))
+            .isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  public void reportsPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.percentile(0.99)).isEqualTo(Duration.ZERO);
+
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat(histogram.total()).isEqualTo(Duration.ofMillis(500_500));
+    assertThat(histogram.mean()).isEqualTo(Duration.ofNanos(500_500_000));
+    assertThat(histogram.max()).isEqualTo(Duration.ofSeconds(1));
+    assertWithinBucket(histogram.percentile(0.50), Duration.ofMillis(500));
+    assertWithinBucket(histogram.percentile(0.90), Duration.ofMillis(900));
+    assertWithinBucket(histogram.percentile(0.99), Duration.ofMillis(990));
+    assertThat(histogram.percentile(1)).isEqualTo(Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void separatesOneSlowInvocationFromManyFastOnes() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    histogram.record(TimeUnit.SECONDS.toNanos(2));
+
+    assertWithinBucket(histogram.percentile(0.99), Duration.ofMillis(1));
+    assertThat(histogram.max()).isEqualTo(Duration.ofSeconds(2));
+  }
+
+  @Test
+  public void recordsConcurrently() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; i++) {
+      executor.execute(() -> {
+        for (int j = 0; j < 10_000; j++) {
+          histogram.record(j);
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(histogram.count()).isEqualTo(80_000);
+    assertThat(histogram.max()).isEqualTo(Duration.ofNanos(9_999));
+  }
+
+  /**
+   * Asserts that a reported percentile is no lower than the exact one, and at most one bucket
+   * higher.
+   */
+  private static void assertWithinBucket(Duration actual, Duration expected) {
+    assertThat(actual).isAtLeast(expected);
+    assertThat(actual.toNanos()).isAtMost(expected.toNanos() + expected.toNanos() / 64);
+  }
+}
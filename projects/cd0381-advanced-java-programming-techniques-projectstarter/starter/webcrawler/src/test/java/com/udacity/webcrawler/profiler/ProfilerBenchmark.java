@@ -0,0 +1,122 @@
+package com.udacity.webcrawler.profiler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of calling a {@link Profiled} method through a profiling proxy, against calling
+ * it directly.
+ *
+ * <p>The {@code handWritten} benchmark calls it through a wrapper class that times the call inline
+ * and records it in the same kind of histogram as the proxy. That is the most a wrapper class
+ * generated for each interface could save over the proxy, which still dispatches through
+ * {@link java.lang.reflect.Method#invoke}.
+ *
+ * <p>The {@code wrapAndCall} benchmark also creates a new proxy for every call, the way
+ * {@link com.udacity.webcrawler.parser.PageParserFactoryImpl} wraps every parser it returns.
+ *
+ * <p>Run {@link #main(String[])} from the test classpath (after {@code mvn test-compile}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfilerBenchmark {
+  private final Worker worker = new WorkerImpl();
+  private Profiler profiler;
+  private Worker proxy;
+  private Worker handWritten;
+  private int input;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    profiler = new ProfilerImpl(Clock.systemUTC(), System::nanoTime);
+    proxy = profiler.wrap(Worker.class, worker);
+    Method work = Worker.class.getMethod("work", int.class);
+    handWritten =
+        new TimedWorker(worker, new ProfilingState().histogram(WorkerImpl.class, work));
+  }
+
+  @Benchmark
+  public int direct() {
+    return worker.work(input++);
+  }
+
+  @Benchmark
+  public int proxied() {
+    return proxy.work(input++);
+  }
+
+  @Benchmark
+  public int handWritten() {
+    return handWritten.work(input++);
+  }
+
+  @Benchmark
+  public int wrapAndCall() {
+    return profiler.wrap(Worker.class, worker).work(input++);
+  }
+
+  /**
+   * A profiled interface with a method that is cheap enough for the profiling overhead to show.
+   */
+  public interface Worker {
+    @Profiled
+    int work(int value);
+  }
+
+  private static final class WorkerImpl implements Worker {
+    @Override
+    public int work(int value) {
+      return Integer.rotateLeft(value * 0x9E3779B9, 7);
+    }
+  }
+
+  /**
+   * What a wrapper class generated for {@link Worker} would look like.
+   */
+  private static final class TimedWorker implements Worker {
+    private final Worker delegate;
+    private final LatencyHistogram histogram;
+
+    TimedWorker(Worker delegate, LatencyHistogram histogram) {
+      this.delegate = delegate;
+      this.histogram = histogram;
+    }
+
+    @Override
+    public int work(int value) {
+      long startTime = System.nanoTime();
+      try {
+        return delegate.work(value);
+      } finally {
+        histogram.record(Math.max(0, System.nanoTime() - startTime));
+      }
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ProfilerBenchmark.class.getSimpleName())
+            .build())
+        .run();
+  }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -13,7 +16,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public final class ProfilerImplTest {
   private final FakeClock clock = new FakeClock();
-  private final Profiler profiler = new ProfilerImpl(clock);
+  private final Profiler profiler = new ProfilerImpl(clock, clock::nanoTime);
   private final ProfiledInterfaceImpl delegate = new ProfiledInterfaceImpl(clock);
 
   @Test
@@ -103,6 +106,102 @@ public final class ProfilerImplTest {
         .contains(
             "com.udacity.webcrawler.profiler.ProfilerImplTest$ProfiledInterfaceImpl#profiled");
     assertThat(written).contains("0m 3s 0ms");
+    assertThat(written).contains("count 3, mean 1000.000ms, p50 1000.000ms");
+    assertThat(written).contains("p99 1000.000ms, max 1000.000ms");
+  }
+
+  @Test
+  public void invokesDelegateOncePerCall() throws Exception {
+    ProfiledInterface proxy = profiler.wrap(ProfiledInterface.class, delegate);
+
+    proxy.profiled();
+    proxy.profiled();
+
+    assertWithMessage("Each call to the proxy should invoke the wrapped object exactly once")
+        .that(delegate.profiledCalls())
+        .isEqualTo(2);
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertThat(writer.toString()).contains("0m 2s 0ms (count 2,");
+    assertWithMessage("Methods that were never called should not be written")
+        .that(writer.toString())
+        .doesNotContain("#throwSomething");
+  }
+
+  @Test
+  public void testDimensions() throws Exception {
+    Profiler dimensionProfiler =
+        new ProfilerImpl(
+            clock,
+            clock::nanoTime,
+            EnumSet.allOf(ProfilerDimension.class));
+    ProfiledInterface tagged =
+        dimensionProfiler.wrap(ProfiledInterface.class, delegate, "example.com");
+    CallerInterface caller =
+        dimensionProfiler.wrap(CallerInterface.class, new CallerInterfaceImpl(clock, tagged));
+
+    caller.call();
+    caller.call();
+    tagged.profiled();
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    dimensionProfiler.writeData(writer);
+    String written = writer.toString();
+    String callerKey = "com.udacity.webcrawler.profiler.ProfilerImplTest$CallerInterfaceImpl#call";
+    String calleeKey =
+        "com.udacity.webcrawler.profiler.ProfilerImplTest$ProfiledInterfaceImpl#profiled";
+    assertThat(written).contains(callerKey + " took 0m 4s 0ms (count 2,");
+    assertThat(written).contains(callerKey + " > " + calleeKey + " took 0m 2s 0ms (count 2,");
+    assertThat(written).contains(calleeKey + " [example.com] took 0m 3s 0ms (count 3,");
+    // The nested calls count towards the thread's time only once, as part of their caller.
+    Thread current = Thread.currentThread();
+    assertThat(written).contains(
+        "Thread #" + current.getId() + " (" + current.getName() + ") took 0m 5s 0ms (count 3,");
+  }
+
+  @Test
+  public void testThreadsWithTheSameNameKeepSeparateTotals() throws Exception {
+    Profiler threadProfiler =
+        new ProfilerImpl(clock, clock::nanoTime, EnumSet.of(ProfilerDimension.THREAD));
+    ProfiledInterface proxy = threadProfiler.wrap(ProfiledInterface.class, delegate);
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      // Run one after the other, since the fake clock is not thread-safe.
+      Thread worker = new Thread(proxy::profiled, "worker");
+      worker.start();
+      worker.join();
+      workers.add(worker);
+    }
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    threadProfiler.writeData(writer);
+    String written = writer.toString();
+    for (Thread worker : workers) {
+      assertThat(written).contains(
+          "Thread #" + worker.getId() + " (worker) took 0m 1s 0ms (count 1,");
+    }
+  }
+
+  @Test
+  public void testTagsBeyondLimitShareTotals() throws Exception {
+    Profiler tagProfiler =
+        new ProfilerImpl(clock, clock::nanoTime, EnumSet.of(ProfilerDimension.TAG));
+    int extraTags = 3;
+    for (int i = 0; i < ProfilerImpl.MAX_TAGS + extraTags; i++) {
+      tagProfiler.wrap(ProfiledInterface.class, delegate, "host" + i).profiled();
+    }
+    // A tag that already has its own totals keeps them.
+    tagProfiler.wrap(ProfiledInterface.class, delegate, "host0").profiled();
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    tagProfiler.writeData(writer);
+    String written = writer.toString();
+    String key = "com.udacity.webcrawler.profiler.ProfilerImplTest$ProfiledInterfaceImpl#profiled";
+    assertThat(written).contains(key + " [host0] took 0m 2s 0ms (count 2,");
+    assertThat(written).contains(key + " [host" + (ProfilerImpl.MAX_TAGS - 1) + "] took");
+    assertThat(written).doesNotContain(key + " [host" + ProfilerImpl.MAX_TAGS + "]");
+    assertThat(written).contains(
+        key + " [" + ProfilerImpl.OTHER_TAG + "] took 0m 3s 0ms (count " + extraTags + ",");
   }
 
   @Test
@@ -136,6 +235,57 @@ public final class ProfilerImplTest {
     assertThat(written).contains("0m 1s 0ms");
   }
 
+  @Test
+  public void testCounters() throws Exception {
+    profiler.count("Cache#hits", 2);
+    profiler.count("Cache#misses", 1);
+    profiler.count("Cache#hits", 3);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertThat(writer.toString()).contains("Cache#hits: 5");
+    assertThat(writer.toString()).contains("Cache#misses: 1");
+  }
+
+  @Test
+  public void testGauges() throws Exception {
+    profiler.gauge("Crawler#concurrency", 4);
+    profiler.gauge("Crawler#concurrency", 9);
+    profiler.gauge("Crawler#concurrency", 6);
+
+    CloseableStringWriter writer = new CloseableStringWriter();
+    profiler.writeData(writer);
+    assertThat(writer.toString()).contains("Crawler#concurrency: 6 (min 4, max 9)");
+  }
+
+  /**
+   * A test interface whose profiled method makes a profiled call of its own.
+   */
+  private interface CallerInterface {
+    @Profiled
+    void call();
+  }
+
+  /**
+   * Concrete implementation of {@link CallerInterface}, which takes a second of its own besides the
+   * call it makes.
+   */
+  private static final class CallerInterfaceImpl implements CallerInterface {
+    private final FakeClock fakeClock;
+    private final ProfiledInterface callee;
+
+    CallerInterfaceImpl(FakeClock fakeClock, ProfiledInterface callee) {
+      this.fakeClock = Objects.requireNonNull(fakeClock);
+      this.callee = Objects.requireNonNull(callee);
+    }
+
+    @Override
+    public void call() {
+      fakeClock.tick(Duration.ofSeconds(1));
+      callee.profiled();
+    }
+  }
+
   /**
    * A test interface that does not have any {@link Profiled} methods.
    */
@@ -167,6 +317,7 @@ public final class ProfilerImplTest {
   private static final class ProfiledInterfaceImpl implements ProfiledInterface {
     private final FakeClock fakeClock;
     private boolean wasFakeEqualsCalled = false;
+    private int profiledCalls = 0;
 
     ProfiledInterfaceImpl(FakeClock fakeClock) {
       this.fakeClock = Objects.requireNonNull(fakeClock);
@@ -174,6 +325,7 @@ public final class ProfilerImplTest {
 
     @Override
     public String profiled() {
+      profiledCalls++;
       fakeClock.tick(Duration.ofSeconds(1));
       return "profiled";
     }
@@ -201,5 +353,9 @@ public final class ProfilerImplTest {
     public boolean wasFakeEqualsCalled() {
       return wasFakeEqualsCalled;
     }
+
+    public int profiledCalls() {
+      return profiledCalls;
+    }
   }
 }